@@ -0,0 +1,58 @@
+package org.app.bench;
+
+import org.app.model.BillingMode;
+import org.app.model.ImportDeclaration;
+import org.app.service.BillingCsvWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Writing output.csv for 100k declarations, in both billing modes. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BillingCsvBenchmark {
+    @Param({"CU_FIZIC", "FARA_FIZIC"})
+    public BillingMode mode;
+
+    @Param({"100000"})
+    public int declarations;
+
+    private List<ImportDeclaration> list;
+    private Path out;
+
+    @Setup
+    public void setUp() throws IOException {
+        list = new CorpusGenerator(42).declarations(declarations);
+        out = Files.createTempFile("bench-output", ".csv");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(out);
+    }
+
+    @Benchmark
+    public Path write() throws IOException {
+        BillingCsvWriter.write(out, list, mode);
+        return out;
+    }
+}
@@ -0,0 +1,209 @@
+package org.app.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.app.model.ImportDeclaration;
+
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic declarations for the benchmarks: extractor records (NDJSON, the
+ * way extract.py emits them), bound declarations, realistic file names and,
+ * optionally, text-layer PDFs the extractors can read. Seeded, so every run
+ * and every commit benchmarks the same corpus.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar org.app.bench.CorpusGenerator OUT_DIR [records] [pdfs] [font.ttf]
+ * </pre>
+ */
+public final class CorpusGenerator {
+    private static final String[] OFFICES = {"26ROBU1030", "26ROCT1900", "26ROCJ0400"};
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Random random;
+
+    public CorpusGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CorpusGenerator OUT_DIR [records=10000] [pdfs=0] [font.ttf]");
+            System.exit(2);
+        }
+        Path out = Path.of(args[0]);
+        int records = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int pdfs = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        Files.createDirectories(out);
+
+        CorpusGenerator gen = new CorpusGenerator(42);
+        try (BufferedWriter w = Files.newBufferedWriter(out.resolve("records.ndjson"), StandardCharsets.UTF_8)) {
+            for (String line : gen.records(records)) {
+                w.write(line);
+                w.newLine();
+            }
+        }
+        if (pdfs > 0) {
+            Path font = args.length > 3 ? Path.of(args[3]) : findFont();
+            gen.writePdfs(out.resolve("pdfs"), pdfs, 3, font);
+        }
+        System.out.println("Corpus written to " + out.toAbsolutePath());
+    }
+
+    /**
+     * Extractor records, one JSON object per element: mostly good ones, about
+     * 2% {@code error} records and 1% with no fields (wrong structure).
+     */
+    public List<String> records(int count) throws IOException {
+        List<String> lines = new ArrayList<>(count);
+        List<String> names = fileNames(count);
+        for (int i = 0; i < count; i++) {
+            ObjectNode n = MAPPER.createObjectNode();
+            int kind = random.nextInt(100);
+            if (kind < 2) {
+                n.put("file", names.get(i));
+                n.put("error", "No /Root object! - Is this really a PDF?");
+            } else if (kind < 3) {
+                n.put("file", names.get(i));
+                n.put("pages_read", 6);
+                n.put("pages_total", 6);
+            } else {
+                ImportDeclaration d = declaration(i);
+                n.put("nrDestinatar", d.getNrDestinatar());
+                n.put("mrn", d.getMrn());
+                n.put("referintaDocument", d.getReferintaDocument());
+                n.put("nrArticole", d.getNrArticole());
+                n.put("nrContainer", d.getNrContainer());
+                n.put("file", names.get(i));
+                n.put("pages_read", 2);
+                n.put("pages_total", 2 + random.nextInt(8));
+            }
+            lines.add(MAPPER.writeValueAsString(n));
+        }
+        return lines;
+    }
+
+    /** Parsed declarations, as the CSV stage receives them. */
+    public List<ImportDeclaration> declarations(int count) {
+        List<ImportDeclaration> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ImportDeclaration d = declaration(i);
+            d.setFile("decl" + (i + 1) + ".pdf");
+            list.add(d);
+        }
+        return list;
+    }
+
+    /**
+     * File names the way they arrive from customs: numbered scans, duplicates
+     * with "(n)", zero padding and mixed case.
+     */
+    public List<String> fileNames(int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int n = random.nextInt(count * 10) + 1;
+            switch (random.nextInt(5)) {
+                case 0:
+                    names.add("decl" + n + ".pdf");
+                    break;
+                case 1:
+                    names.add("Decl" + String.format("%06d", n) + ".PDF");
+                    break;
+                case 2:
+                    names.add("DV " + OFFICES[random.nextInt(OFFICES.length)] + " " + n + ".pdf");
+                    break;
+                case 3:
+                    names.add("declaratie (" + random.nextInt(20) + ") " + n + ".pdf");
+                    break;
+                default:
+                    names.add("scan_" + (2020 + random.nextInt(6)) + "-" + (1 + random.nextInt(12)) + "_" + n + ".pdf");
+            }
+        }
+        return names;
+    }
+
+    /** Text of a declaration's first pages, with the lines the field rules anchor on. */
+    public static List<String> pageLines(ImportDeclaration d) {
+        return List.of(
+                "Declaratie vamala de import",
+                "Importatorul - [13 04] Nr " + d.getNrDestinatar(),
+                "MRN: " + d.getMrn(),
+                "N821 / " + d.getReferintaDocument() + " Document de transport",
+                "Total articole: " + d.getNrArticole(),
+                "Numărul de identificare al containerului [19 07] " + d.getNrContainer()
+        );
+    }
+
+    /** Writes {@code count} PDFs: the fields on page one, filler on the other pages. */
+    public void writePdfs(Path dir, int count, int pages, Path font) throws IOException {
+        Files.createDirectories(dir);
+        for (int i = 0; i < count; i++) {
+            ImportDeclaration d = declaration(i);
+            try (PDDocument doc = new PDDocument()) {
+                PDType0Font f = PDType0Font.load(doc, font.toFile());
+                addPage(doc, f, pageLines(d));
+                for (int p = 1; p < pages; p++) {
+                    addPage(doc, f, List.of("Anexa " + p, "Descrierea marfurilor, pozitia " + p));
+                }
+                doc.save(dir.resolve("decl" + (i + 1) + ".pdf").toFile());
+            }
+        }
+    }
+
+    private ImportDeclaration declaration(int i) {
+        String office = OFFICES[random.nextInt(OFFICES.length)];
+        ImportDeclaration d = new ImportDeclaration();
+        d.setNrDestinatar("RO" + (10_000_000 + random.nextInt(90_000_000)));
+        d.setMrn("24" + (random.nextBoolean() ? office.substring(2) : "ROBV0300") + "I" + (100_000 + i));
+        d.setReferintaDocument(office + "T" + (200_000 + i));
+        d.setNrArticole(String.valueOf(1 + random.nextInt(random.nextInt(10) < 7 ? 3 : 40)));
+        d.setNrContainer("MSKU" + (1_000_000 + random.nextInt(9_000_000)));
+        return d;
+    }
+
+    private static void addPage(PDDocument doc, PDType0Font font, List<String> lines) throws IOException {
+        PDPage page = new PDPage();
+        doc.addPage(page);
+        try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+            cs.beginText();
+            cs.setFont(font, 11);
+            cs.setLeading(14);
+            cs.newLineAtOffset(50, 700);
+            for (String line : lines) {
+                cs.showText(line);
+                cs.newLine();
+            }
+            cs.endText();
+        }
+    }
+
+    /** A TrueType font with Romanian diacritics from the usual system locations. */
+    static Path findFont() throws FileNotFoundException {
+        String[] candidates = {
+                "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf",
+                "/usr/share/fonts/dejavu/DejaVuSans.ttf",
+                "/System/Library/Fonts/Supplemental/Arial.ttf",
+                "/Library/Fonts/Arial.ttf",
+                "C:\\Windows\\Fonts\\arial.ttf"
+        };
+        for (String c : candidates) {
+            Path p = Path.of(c);
+            if (Files.isRegularFile(p)) {
+                return p;
+            }
+        }
+        throw new FileNotFoundException("No TrueType font found; pass one as the last argument");
+    }
+}
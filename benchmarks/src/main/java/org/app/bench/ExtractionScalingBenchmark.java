@@ -0,0 +1,102 @@
+package org.app.bench;
+
+import org.app.model.ImportDeclaration;
+import org.app.service.ExtractorPool;
+import org.app.service.JavaPdfExtractor;
+import org.app.service.NativePdfExtractor;
+import org.app.service.PdfExtractor;
+import org.app.service.PdfFolderService;
+import org.app.service.ResultCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A folder of generated PDFs through an engine, end to end, at 1/2/4/8
+ * workers. Each invocation starts with an empty result cache. The font
+ * comes from -Dbench.font or the usual system locations.
+ * {@code -p engine=java,native} compares the in-JVM engine with pdfplumber
+ * daemons; native needs a bundled extractor or -Didr.extractor.python
+ * (passed on with -jvmArgsAppend).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExtractionScalingBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int workers;
+
+    @Param({"200"})
+    public int pdfCount;
+
+    /** java: PDFBox in this JVM; native: extract.py daemons, one per worker. */
+    @Param({"java"})
+    public String engine;
+
+    private Path dir;
+    private List<Path> pdfs;
+    private PdfExtractor extractor;
+    private PdfFolderService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        dir = Files.createTempDirectory("bench-pdfs");
+        String font = System.getProperty("bench.font");
+        new CorpusGenerator(42).writePdfs(dir, pdfCount, 3,
+                font != null ? Path.of(font) : CorpusGenerator.findFont());
+        pdfs = PdfFolderService.listPdfs(dir);
+        switch (engine) {
+            case "java":
+                extractor = new JavaPdfExtractor(workers, 0);
+                break;
+            case "native":
+                extractor = new NativePdfExtractor(new ExtractorPool(workers), 0);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + engine + " (expected java or native)");
+        }
+        // daemons up and classes loaded before the first measured run
+        extractor.prewarm();
+    }
+
+    @Setup(Level.Invocation)
+    public void freshCache() throws IOException {
+        Path cacheFile = dir.resolve("cache").resolve("results.ndjson");
+        Files.deleteIfExists(cacheFile);
+        service = new PdfFolderService(line -> { }, extractor, new ResultCache(cacheFile, pdfCount));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        extractor.close();
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public List<ImportDeclaration> extractFolder() throws Exception {
+        return service.processFiles(pdfs);
+    }
+}
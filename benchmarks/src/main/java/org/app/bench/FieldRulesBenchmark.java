@@ -0,0 +1,45 @@
+package org.app.bench;
+
+import org.app.service.FieldRules;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Matching the declaration fields in one page of text. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FieldRulesBenchmark {
+    private String page;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder();
+        // the anchors sit between the usual boilerplate lines
+        for (int i = 0; i < 40; i++) {
+            sb.append("Rubrica ").append(i).append(" valoare declarata ").append(i * 17).append('\n');
+        }
+        for (String line : CorpusGenerator.pageLines(new CorpusGenerator(42).declarations(1).get(0))) {
+            sb.append(line).append('\n');
+        }
+        page = sb.toString();
+    }
+
+    @Benchmark
+    public Map<String, String> extract() {
+        return FieldRules.extract(page);
+    }
+}
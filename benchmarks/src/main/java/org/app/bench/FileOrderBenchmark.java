@@ -0,0 +1,52 @@
+package org.app.bench;
+
+import org.app.helper.NaturalOrder;
+import org.app.service.PdfFolderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Sorting file names into output.csv order, comparing names directly or folded keys. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileOrderBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int files;
+
+    private List<String> names;
+
+    @Setup
+    public void setUp() {
+        names = new CorpusGenerator(42).fileNames(files);
+    }
+
+    @Benchmark
+    public List<String> sort() {
+        List<String> copy = new ArrayList<>(names);
+        copy.sort(PdfFolderService.FILE_ORDER);
+        return copy;
+    }
+
+    @Benchmark
+    public List<String> sortByKeys() {
+        List<String> copy = new ArrayList<>(names);
+        NaturalOrder.sort(copy, name -> name);
+        return copy;
+    }
+}
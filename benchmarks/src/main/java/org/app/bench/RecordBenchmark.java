@@ -0,0 +1,128 @@
+package org.app.bench;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.app.model.ImportDeclaration;
+import org.app.service.PdfExtractor;
+import org.app.service.PdfFolderService;
+import org.app.service.ResultCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Java side of a run without the PDFs: parsing extractor records,
+ * binding them to {@link ImportDeclaration}, and the whole of
+ * {@link PdfFolderService#processFiles} (validation, logging hooks, sorting)
+ * over a backend that answers from the synthetic corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordBenchmark {
+    @Param({"10000"})
+    public int records;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private List<String> lines;
+    private List<Path> pdfs;
+    private Map<String, String> byFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        lines = new CorpusGenerator(42).records(records);
+        byFile = new HashMap<>();
+        pdfs = new ArrayList<>(records);
+        // paths that don't exist: no hashing, so the result cache never answers
+        Path dir = Path.of("missing-bench-corpus");
+        for (String line : lines) {
+            String file = mapper.readTree(line).get("file").asText();
+            byFile.put(file, line);
+            pdfs.add(dir.resolve(file));
+        }
+    }
+
+    @Benchmark
+    public void parseAndBind(Blackhole bh) throws IOException {
+        for (String line : lines) {
+            JsonNode n = mapper.readTree(line);
+            bh.consume(mapper.treeToValue(n, ImportDeclaration.class));
+        }
+    }
+
+    @Benchmark
+    public List<ImportDeclaration> processFiles(Service s) throws Exception {
+        return s.service.processFiles(pdfs);
+    }
+
+    /** The service under test, at each worker count. */
+    @State(Scope.Benchmark)
+    public static class Service {
+        @Param({"1", "4"})
+        public int workers;
+
+        PdfFolderService service;
+
+        @Setup
+        public void setUp(RecordBenchmark corpus) throws IOException {
+            Path cacheFile = Files.createTempDirectory("bench-cache").resolve("results.ndjson");
+            service = new PdfFolderService(line -> { }, new CorpusExtractor(corpus.byFile, workers),
+                    new ResultCache(cacheFile, 1));
+        }
+    }
+
+    /** Answers each file with its corpus record, parsed the way the daemon parses a line. */
+    private static final class CorpusExtractor implements PdfExtractor {
+        private final ObjectMapper mapper = new ObjectMapper();
+        private final Map<String, String> byFile;
+        private final int parallelism;
+
+        CorpusExtractor(Map<String, String> byFile, int parallelism) {
+            this.byFile = byFile;
+            this.parallelism = parallelism;
+        }
+
+        @Override
+        public String name() {
+            return "corpus";
+        }
+
+        @Override
+        public String cacheTag() {
+            return "corpus";
+        }
+
+        @Override
+        public int parallelism() {
+            return parallelism;
+        }
+
+        @Override
+        public JsonNode extract(Path pdf) throws IOException {
+            return mapper.readTree(byFile.get(pdf.getFileName().toString()));
+        }
+    }
+}
@@ -4,97 +4,281 @@ import logging
 logging.getLogger("pdfminer").setLevel(logging.ERROR)
 logging.getLogger("pdfminer.pdfpage").setLevel(logging.ERROR)
 
-import sys, json
+import sys, json, os, time
+from concurrent.futures import ProcessPoolExecutor
+from concurrent.futures.process import BrokenProcessPool
+from multiprocessing import freeze_support
 from pathlib import Path
-import pdfplumber
 import re
 
+# Version of the field rules below; the Java side keys its result cache by it.
+# Bump together with FieldRules.VERSION (the Java port) whenever a rule changes.
+RULES_VERSION = 2
+
+
+# One rule per field. The first line containing any anchor decides the field:
+# "extract" is tried on that line, then "fallback" if extract doesn't apply.
+#   ("regex", pattern)  -> group 1 of the first match
+#   ("after", sep)      -> first word after the first sep; doesn't apply if sep is missing
+# "fold" compares anchors against the line's upper/lower-cased form.
+RULES = (
+    {"field": "nrDestinatar", "anchors": ("Importatorul - [13 04]",), "fold": None,
+     "extract": ("regex", re.compile(r"Nr\W*([A-Z0-9]+)")), "fallback": None},
+    {"field": "mrn", "anchors": ("MRN",), "fold": "upper",
+     "extract": ("regex", re.compile(r"\bMRN\W*([A-Z0-9]+)", re.IGNORECASE)), "fallback": None},
+    {"field": "referintaDocument", "anchors": ("N822", "N821"), "fold": None,
+     "extract": ("after", "/"), "fallback": ("regex", re.compile(r"N82[12]\s*/\s*(\S+)"))},
+    {"field": "nrArticole", "anchors": ("total articole",), "fold": "lower",
+     "extract": ("regex", re.compile(r"total articole[^\d]*(\d+)", re.IGNORECASE)), "fallback": None},
+    {"field": "nrContainer", "anchors": ("Numărul de identificare al containerului",), "fold": None,
+     "extract": ("after", "]"), "fallback": ("regex", re.compile(r"\[19 07\]\s*([A-Z0-9\-]+)"))},
+)
+
+# every field the rules can fill
+FIELDS = tuple(rule["field"] for rule in RULES)
+
+# Large PDFs: when the fields aren't all on the first HEAD_PAGES pages and the
+# file has at least PARALLEL_MIN_PAGES pages, the rest is extracted by a pool
+# of PAGE_WORKERS processes, CHUNK_PAGES pages per task, and fed to the
+# matcher in page order, so the result is the same as reading page by page.
+# IDR_PARALLEL_MIN_PAGES=0 turns it off. The pool is started on the first
+# large file; every daemon gets its own, so the Java side sets
+# IDR_PAGE_WORKERS to its share of the cores (cores / daemons). The default
+# is for a single extract.py run.
+PARALLEL_MIN_PAGES = int(os.environ.get("IDR_PARALLEL_MIN_PAGES", "64"))
+PAGE_WORKERS = int(os.environ.get("IDR_PAGE_WORKERS", "0")) or min(os.cpu_count() or 1, 8)
+HEAD_PAGES = 4
+CHUNK_PAGES = 8
+
+# IDR_TEXT_LAYER=1: records carry the page texts read in "text", for the Java
+# side's text-layer store (re-matching after a rule change without the PDF).
+# IDR_TEXT_LAYER=full: every page's text, read on after the rules are done
+# (opt-in on the Java side, it gives up the early exit); pages_read counts
+# every page read.
+TEXT_LAYER = os.environ.get("IDR_TEXT_LAYER") in ("1", "full")
+FULL_TEXT_LAYER = os.environ.get("IDR_TEXT_LAYER") == "full"
+
+_page_pool = None
+
+
+def _apply(how, line):
+    kind, arg = how
+    if kind == "regex":
+        m = arg.search(line)
+        return m.group(1) if m else None
+    parts = line.split(arg, 1)
+    if len(parts) < 2:
+        return None
+    return parts[1].strip().split()[0]
+
+
+class FieldMatcher:
+    """Single pass over the lines: every line is checked against the anchors of
+    all undecided rules at once, and feeding stops once every rule is decided."""
+
+    def __init__(self, rules=RULES):
+        self.pending = list(rules)
+        self.data = {}
+
+    @property
+    def done(self):
+        return not self.pending
+
+    def feed(self, text):
+        for raw in text.splitlines():
+            if self.done:
+                break
+            line = raw.strip()
+            if not line:
+                continue
+            folded = {None: line}
+            for rule in list(self.pending):
+                fold = rule["fold"]
+                if fold not in folded:
+                    folded[fold] = line.upper() if fold == "upper" else line.lower()
+                if not any(a in folded[fold] for a in rule["anchors"]):
+                    continue
+                self.pending.remove(rule)
+                value = _apply(rule["extract"], line)
+                if value is None and rule["fallback"] is not None:
+                    value = _apply(rule["fallback"], line)
+                if value is not None:
+                    self.data[rule["field"]] = value
+        return self
+
 
 def extract_fields(text):
-    lines = [l.strip() for l in text.splitlines() if l.strip()]
-    data = {}
-
-    # 1. nrDestinatar
-    for i,l in enumerate(lines):
-        if "Importatorul - [13 04]" in l:
-            m = re.search(r"Nr\W*([A-Z0-9]+)", l)
-            if m:
-                data["nrDestinatar"] = m.group(1)
-            break
+    matcher = FieldMatcher().feed(text)
+    return {f: matcher.data[f] for f in FIELDS if f in matcher.data}
 
-    # 2. mrn
-    for l in lines:
-        if "MRN" not in l.upper():
-            continue
-        m = re.search(r"\bMRN\W*([A-Z0-9]+)", l, re.IGNORECASE)
-        if m:
-            data["mrn"] = m.group(1)
-        break
-
-    # 3. referintaDocument
-    for l in lines:
-        # Match any line with N822 or N821
-        if "N822" in l or "N821" in l:
-            # Option A: simple split+strip
-            parts = l.split("/", 1)
-            if len(parts) > 1:
-                data["referintaDocument"] = parts[1].strip().split()[0]
-            else:
-                # Fallback: regex for either N822 or N821
-                m = re.search(r"N82[12]\s*/\s*(\S+)", l)
-                if m:
-                    data["referintaDocument"] = m.group(1)
-            break  # stop after first match
-
-    # 4. nrArticole: section header “5 Articole” → next line only
-    for l in lines:
-        if "total articole" in l.lower():
-            # try to grab it from the same line first
-            m = re.search(r"total articole[^\d]*(\d+)", l, re.IGNORECASE)
-            if m:
-                data["nrArticole"] = m.group(1)
-            break
 
+def _open(pdf_path):
+    # imported here, so --match (the rules alone) runs without pdfplumber
+    import pdfplumber
+    return pdfplumber.open(pdf_path)
 
-    # 5. nrContainer: first look for “Containere” → next line
-
-    for l in lines:
-        if "Numărul de identificare al containerului" in l:
-            # DEBUG: see exactly what this line contains
-            # print("Container-line:", repr(l))
-
-            # Option A: split on the closing bracket
-            parts = l.split("]", 1)
-            if len(parts) > 1:
-                # everything after the first ']'
-                # then split on whitespace and take the first token
-                data["nrContainer"] = parts[1].strip().split()[0]
-            else:
-                # Fallback: regex search anywhere on this line
-                m = re.search(r"\[19 07\]\s*([A-Z0-9\-]+)", l)
-                if m:
-                    data["nrContainer"] = m.group(1)
-            break
-    return data
 
-def main(folder_path):
-    results = []
-    for pdf_path in Path(folder_path).glob("*.pdf"):
+def match(texts):
+    # --match: the fields of each text, or its error, for the Java side's rule parity tests
+    out = []
+    for text in texts:
         try:
-            with pdfplumber.open(pdf_path) as pdf:
-                text = "\n".join(page.extract_text() or "" for page in pdf.pages)
-            rec = extract_fields(text)
-            rec["file"] = pdf_path.name
+            out.append(extract_fields(text))
         except Exception as e:
-            rec = {"file": pdf_path.name, "error": str(e)}
-        results.append(rec)
+            out.append({"error": str(e)})
+    return out
+
+
+def _page_texts(pdf_path, start, stop):
+    # runs in a pool worker: the text of pages [start, stop), each worker opens the file itself
+    with _open(pdf_path) as pdf:
+        return [page.extract_text() or "" for page in pdf.pages[start:stop]]
 
-    # emit JSON array to stdout
-    print(json.dumps(results, ensure_ascii=False))
+
+def _pool():
+    global _page_pool
+    if _page_pool is None:
+        _page_pool = ProcessPoolExecutor(max_workers=PAGE_WORKERS)
+    return _page_pool
+
+
+def _drop_pool():
+    global _page_pool
+    if _page_pool is not None:
+        _page_pool.shutdown(wait=False, cancel_futures=True)
+        _page_pool = None
+
+
+def _use_pool(pages_total):
+    return 0 < PARALLEL_MIN_PAGES <= pages_total and PAGE_WORKERS > 1 and pages_total > HEAD_PAGES
+
+
+def _sequential_texts(pages, ms):
+    for page in pages:
+        t = time.perf_counter()
+        text = page.extract_text() or ""
+        ms["text"] += (time.perf_counter() - t) * 1000
+        yield text
+
+
+def _parallel_texts(pdf, pdf_path, start, ms):
+    # all chunks are queued at once; the ones not started yet are cancelled when the caller stops early
+    stop = len(pdf.pages)
+    futures = [_pool().submit(_page_texts, str(pdf_path), a, min(a + CHUNK_PAGES, stop))
+               for a in range(start, stop, CHUNK_PAGES)]
+    next_page = start
+    try:
+        for f in futures:
+            t = time.perf_counter()
+            texts = f.result()
+            ms["text"] += (time.perf_counter() - t) * 1000
+            for text in texts:
+                next_page += 1
+                yield text
+    except BrokenProcessPool:
+        # a worker died (out of memory, killed): drop the pool and read the rest here
+        _drop_pool()
+        yield from _sequential_texts(pdf.pages[next_page:], ms)
+    finally:
+        for f in futures:
+            f.cancel()
+
+
+def _page_stream(pdf, pdf_path, ms):
+    # page texts in page order: the first pages here, the rest from the pool on large files
+    if not _use_pool(len(pdf.pages)):
+        yield from _sequential_texts(pdf.pages, ms)
+        return
+    yield from _sequential_texts(pdf.pages[:HEAD_PAGES], ms)
+    yield from _parallel_texts(pdf, pdf_path, HEAD_PAGES, ms)
+
+
+def extract_file(pdf_path):
+    # timings in ms, so the Java side can report where the time went
+    start = time.perf_counter()
+    ms = {"open": 0.0, "text": 0.0, "match": 0.0}
+    try:
+        with _open(pdf_path) as pdf:
+            pages_total = len(pdf.pages)
+            ms["open"] = (time.perf_counter() - start) * 1000
+            matcher = FieldMatcher()
+            pages_read = 0
+            layer = []
+            texts = _page_stream(pdf, pdf_path, ms)
+            try:
+                for text in texts:
+                    pages_read += 1
+                    if TEXT_LAYER:
+                        layer.append(text)
+                    if matcher.done:
+                        # only reading on for the full text layer
+                        continue
+                    t = time.perf_counter()
+                    matcher.feed(text)
+                    ms["match"] += (time.perf_counter() - t) * 1000
+                    # every rule has seen its first anchor line: the rest can't change the result
+                    if matcher.done and not FULL_TEXT_LAYER:
+                        break
+            finally:
+                texts.close()
+            rec = {f: matcher.data[f] for f in FIELDS if f in matcher.data}
+        rec["file"] = pdf_path.name
+        rec["pages_read"] = pages_read
+        rec["pages_total"] = pages_total
+        if TEXT_LAYER:
+            rec["text"] = layer
+    except Exception as e:
+        rec = {"file": pdf_path.name, "error": str(e)}
+    try:
+        rec["bytes"] = os.path.getsize(pdf_path)
+    except OSError:
+        pass
+    ms["total"] = (time.perf_counter() - start) * 1000
+    rec["ms"] = {k: round(v, 1) for k, v in ms.items()}
+    return rec
+
+def emit(rec):
+    # one JSON object per line, flushed right away so the reader can bind it
+    sys.stdout.write(json.dumps(rec, ensure_ascii=False) + "\n")
+    sys.stdout.flush()
+
+def main(folder_path):
+    for pdf_path in Path(folder_path).glob("*.pdf"):
+        emit(extract_file(pdf_path))
+
+def serve():
+    # long-lived mode: one command per stdin line, every command ends with {"done": true}
+    #   PING            -> {"pong": true}
+    #   FILE <path>     -> one record
+    #   FOLDER <path>   -> one record per PDF in the folder
+    #   QUIT            -> exit
+    for line in sys.stdin:
+        cmd, _, arg = line.rstrip("\r\n").partition(" ")
+        if cmd == "PING":
+            emit({"pong": True})
+        elif cmd == "FILE":
+            emit(extract_file(Path(arg)))
+        elif cmd == "FOLDER":
+            for pdf_path in Path(arg).glob("*.pdf"):
+                emit(extract_file(pdf_path))
+        elif cmd == "QUIT":
+            break
+        elif cmd:
+            emit({"error": "unknown command: " + cmd})
+        emit({"done": True})
 
 if __name__ == "__main__":
+    # the page pool's workers re-enter a frozen (PyInstaller) binary through here
+    freeze_support()
     if len(sys.argv) < 2:
-        print("Usage: extract.py <folder>", file=sys.stderr)
+        print("Usage: extract.py <folder> | extract.py --serve | extract.py --match < texts.json", file=sys.stderr)
         sys.exit(1)
-    main(sys.argv[1])
-
+    # the Java side always talks UTF-8 to us
+    sys.stdout.reconfigure(encoding="utf-8")
+    sys.stdin.reconfigure(encoding="utf-8")
+    if sys.argv[1] == "--serve":
+        serve()
+    elif sys.argv[1] == "--match":
+        emit(match(json.load(sys.stdin)))
+    else:
+        main(sys.argv[1])
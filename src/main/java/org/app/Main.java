@@ -5,22 +5,34 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import org.app.controller.MainController;
+import org.app.service.ExtractorPool;
 
 import java.util.Objects;
 
 public class Main extends Application {
     @Override
     public void start(Stage primaryStage) throws Exception {
-        Parent root = FXMLLoader.load(
+        FXMLLoader loader = new FXMLLoader(
                 Objects.requireNonNull(getClass().getResource("/org/app/view/MainView.fxml"))
         );
+        Parent root = loader.load();
         primaryStage.setTitle("PDF Extractor LPP");
-        Scene scene = new Scene(root, 700, 500);
+        Scene scene = new Scene(root, 800, 650);
         scene.getStylesheets().add(
                 Objects.requireNonNull(getClass().getResource("/org/app/style.css")).toExternalForm()
         );
         primaryStage.setScene(scene);
         primaryStage.show();
+        // the window is up: get the extractor ready while the user picks a folder
+        MainController controller = loader.getController();
+        controller.windowShown();
+    }
+
+    @Override
+    public void stop() {
+        // stop the session's extractor daemons with the window
+        ExtractorPool.closeShared();
     }
 
     public static void main(String[] args) {
@@ -1,7 +1,27 @@
 package org.app;
 
+import org.app.cli.BatchCli;
+import org.app.cli.CdsTraining;
+import org.app.cli.LookupCli;
+
+import java.util.Arrays;
+
 public class NewLauncher {
     public static void main(String[] args) {
+        // headless batch mode never touches the JavaFX toolkit
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            BatchCli.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && "--lookup".equals(args[0])) {
+            LookupCli.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // the build's training run for the class-data-sharing archive, see pom.xml
+        if (args.length > 0 && "--cds-training".equals(args[0])) {
+            CdsTraining.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         Main.main(args);
     }
 }
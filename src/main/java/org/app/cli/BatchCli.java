@@ -0,0 +1,204 @@
+package org.app.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.app.model.BillingMode;
+import org.app.model.ImportDeclaration;
+import org.app.service.BillingCsvWriter;
+import org.app.service.PdfFolderService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Headless batch mode: processes many folders concurrently and writes each
+ * folder's output.csv, without starting JavaFX. Logs go to stderr, a JSON
+ * summary with per-folder timings goes to stdout.
+ *
+ * <pre>
+ * java -cp import-declaration-reader-lpp.jar:libs/* org.app.NewLauncher --batch \
+ *      [--mode cu-fizic|fara-fizic] [--jobs N] [--root DIR] [--rematch] [FOLDER ...]
+ * </pre>
+ */
+public final class BatchCli {
+    private static final String USAGE = "Usage: --batch [--mode cu-fizic|fara-fizic] [--jobs N] [--root DIR] [--rematch] [FOLDER ...]\n"
+            + "  --mode     CSV layout, default cu-fizic\n"
+            + "  --jobs     folders processed at once, default min(4, folders)\n"
+            + "  --root     DIR and its subfolders, the ones that hold PDFs\n"
+            + "  --rematch  apply the current rules to stored text layers only, never extract";
+
+    private final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private boolean rematchOnly;
+
+    private BatchCli() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(new BatchCli().run(args));
+    }
+
+    /** Returns the process exit code: 0 all folders done, 1 some failed, 2 bad arguments. */
+    int run(String[] args) {
+        BillingMode mode = BillingMode.CU_FIZIC;
+        Integer jobs = null;
+        List<Path> folders = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--mode":
+                        mode = parseMode(value(args, ++i, "--mode"));
+                        break;
+                    case "--jobs":
+                        jobs = Integer.parseInt(value(args, ++i, "--jobs"));
+                        if (jobs < 1) {
+                            throw new IllegalArgumentException("--jobs must be >= 1");
+                        }
+                        break;
+                    case "--root":
+                        folders.addAll(foldersUnder(Path.of(value(args, ++i, "--root"))));
+                        break;
+                    case "--rematch":
+                        rematchOnly = true;
+                        break;
+                    case "-h":
+                    case "--help":
+                        System.err.println(USAGE);
+                        return 0;
+                    default:
+                        if (args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown option: " + args[i]);
+                        }
+                        folders.add(Path.of(args[i]));
+                }
+            }
+            if (folders.isEmpty()) {
+                throw new IllegalArgumentException("No folders given");
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        int jobCount = jobs != null ? jobs : Math.min(4, folders.size());
+        return runAll(folders, mode, jobCount);
+    }
+
+    private int runAll(List<Path> folders, BillingMode mode, int jobCount) {
+        long start = System.nanoTime();
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(jobCount, r -> {
+            Thread t = new Thread(r, "batch-folder-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<ObjectNode>> futures = new ArrayList<>(folders.size());
+        for (Path folder : folders) {
+            futures.add(executor.submit(() -> runFolder(folder, mode)));
+        }
+
+        ArrayNode results = mapper.createArrayNode();
+        int failed = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            ObjectNode r;
+            try {
+                r = futures.get(i).get();
+            } catch (Exception e) {
+                r = mapper.createObjectNode()
+                        .put("folder", folders.get(i).toString())
+                        .put("status", "failed")
+                        .put("error", String.valueOf(e.getMessage()));
+            }
+            if (!"ok".equals(r.path("status").asText())) {
+                failed++;
+            }
+            results.add(r);
+        }
+        executor.shutdownNow();
+
+        ObjectNode summary = mapper.createObjectNode();
+        summary.put("mode", mode.name());
+        summary.put("jobs", jobCount);
+        summary.put("folders", folders.size());
+        summary.put("ok", folders.size() - failed);
+        summary.put("failed", failed);
+        summary.put("millis", (System.nanoTime() - start) / 1_000_000);
+        summary.set("results", results);
+        try {
+            System.out.println(mapper.writeValueAsString(summary));
+        } catch (IOException e) {
+            System.err.println("Could not write summary: " + e.getMessage());
+            return 1;
+        }
+        return failed == 0 ? 0 : 1;
+    }
+
+    private ObjectNode runFolder(Path folder, BillingMode mode) {
+        long start = System.nanoTime();
+        ObjectNode r = mapper.createObjectNode();
+        r.put("folder", folder.toString());
+        String tag = "[" + folder.getFileName() + "] ";
+        Consumer<String> logger = line -> System.err.println(tag + line);
+        try {
+            List<Path> pdfs = PdfFolderService.listPdfs(folder);
+            PdfFolderService service = new PdfFolderService(logger);
+            service.setRematchOnly(rematchOnly);
+            Path outFile = folder.resolve("output.csv").toAbsolutePath();
+            List<ImportDeclaration> parsed;
+            // rows are written as the declarations arrive
+            try (BillingCsvWriter csv = BillingCsvWriter.open(outFile, mode)) {
+                parsed = service.processFiles(pdfs, csv);
+                csv.commit();
+            }
+            logger.accept("CSV written to: " + outFile);
+            service.getMetrics().report(folder, logger);
+            r.put("status", "ok");
+            r.put("pdfs", pdfs.size());
+            r.put("parsed", parsed.size());
+            r.put("failed", pdfs.size() - parsed.size());
+            r.put("csv", outFile.toString());
+        } catch (Exception e) {
+            logger.accept("Fatal: " + e.getMessage());
+            r.put("status", "failed");
+            r.put("error", String.valueOf(e.getMessage()));
+        }
+        r.put("millis", (System.nanoTime() - start) / 1_000_000);
+        return r;
+    }
+
+    private static List<Path> foldersUnder(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            throw new IllegalArgumentException("Not a folder: " + root);
+        }
+        return PdfFolderService.foldersWithPdfs(root);
+    }
+
+    private static BillingMode parseMode(String value) {
+        switch (value.toLowerCase(Locale.ROOT).replace('_', '-')) {
+            case "cu-fizic":
+                return BillingMode.CU_FIZIC;
+            case "fara-fizic":
+                return BillingMode.FARA_FIZIC;
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + value + " (expected cu-fizic or fara-fizic)");
+        }
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args[i];
+    }
+}
@@ -0,0 +1,168 @@
+package org.app.cli;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import org.app.Main;
+import org.app.helper.SessionLog;
+import org.app.model.BillingMode;
+import org.app.model.ImportDeclaration;
+import org.app.service.BillingCsvWriter;
+import org.app.service.DeclarationIndex;
+import org.app.service.ExtractorPool;
+import org.app.service.JavaPdfExtractor;
+import org.app.service.PdfFolderService;
+import org.app.service.ResultCache;
+import org.app.service.TextLayerStore;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * The training run behind the class-data-sharing archive the installers
+ * ship (see pom.xml): touches what a first run loads, so those classes end
+ * up in the class list. Processes a generated PDF in a temp folder through
+ * the whole service (extraction, cache, index, CSV, report), then builds the
+ * main window's scene without showing it. Without a display the JavaFX
+ * part is skipped and only logged. The app folders (-Didr.cache.dir,
+ * idr.data.dir, idr.log.dir) point into the temp folder for the run, so the
+ * window's session log, caches and index never touch the build user's; the
+ * temp folder is deleted afterwards.
+ *
+ * <pre>
+ * java -XX:DumpLoadedClassList=app.classlist -cp ... org.app.NewLauncher --cds-training
+ * </pre>
+ */
+public final class CdsTraining {
+    private CdsTraining() {
+    }
+
+    public static void main(String[] args) {
+        Consumer<String> logger = line -> System.err.println("[cds-training] " + line);
+        Path dir;
+        try {
+            dir = Files.createTempDirectory("idr-cds-training");
+        } catch (IOException e) {
+            logger.accept("Fatal: " + e);
+            System.exit(1);
+            return;
+        }
+        // before anything opens its store: the window's controller uses the shared ones
+        System.setProperty("idr.cache.dir", dir.resolve("cache").toString());
+        System.setProperty("idr.data.dir", dir.resolve("data").toString());
+        System.setProperty("idr.log.dir", dir.resolve("logs").toString());
+        int exit = 0;
+        try {
+            runFolder(dir, logger);
+        } catch (Exception e) {
+            logger.accept("Fatal: " + e);
+            exit = 1;
+        }
+        buildWindow(logger);
+        // release what the window may have opened in the temp folder before deleting it
+        ExtractorPool.closeShared();
+        SessionLog.closeShared();
+        deleteQuietly(dir);
+        // System.exit also ends the FX thread and the service's daemons
+        System.exit(exit);
+    }
+
+    // 1) one PDF through the same path a folder takes, with stores in the temp folder
+    private static void runFolder(Path dir, Consumer<String> logger) throws Exception {
+        Path folder = Files.createDirectories(dir.resolve("pdfs"));
+        writeSamplePdf(folder.resolve("training.pdf"));
+        JavaPdfExtractor extractor = new JavaPdfExtractor(1, 0);
+        try {
+            extractor.prewarm();
+            PdfFolderService svc = new PdfFolderService(logger, extractor,
+                    new ResultCache(dir.resolve("cache.json"), 10),
+                    new TextLayerStore(dir.resolve("textlayers")),
+                    new DeclarationIndex(dir.resolve("declarations.ndjson")));
+            List<ImportDeclaration> parsed = svc.processFolder(folder.toFile());
+            // a second pass answers from the result cache
+            svc.processFolder(folder.toFile());
+            for (BillingMode mode : BillingMode.values()) {
+                BillingCsvWriter.write(folder.resolve("output-" + mode + ".csv"), parsed, mode);
+            }
+            svc.getMetrics().report(folder, logger);
+        } finally {
+            extractor.close();
+        }
+    }
+
+    private static void writeSamplePdf(Path pdf) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            PDPage page = new PDPage();
+            doc.addPage(page);
+            try (PDPageContentStream text = new PDPageContentStream(doc, page)) {
+                text.beginText();
+                text.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                text.newLineAtOffset(72, 720);
+                // anchor lines of a few rules, so the record binds into a row
+                for (String line : List.of("MRN 00RO0000000000000", "N821 / TRAINING", "total articole 1")) {
+                    text.showText(line);
+                    text.newLineAtOffset(0, -16);
+                }
+                text.endText();
+            }
+            doc.save(pdf.toFile());
+        }
+    }
+
+    // 2) FXML, controller, CSS and layout of the main window, never shown
+    private static void buildWindow(Consumer<String> logger) {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        try {
+            Platform.startup(() -> {
+                try {
+                    Parent root = FXMLLoader.load(
+                            Objects.requireNonNull(Main.class.getResource("/org/app/view/MainView.fxml")));
+                    Scene scene = new Scene(root, 800, 650);
+                    scene.getStylesheets().add(
+                            Objects.requireNonNull(Main.class.getResource("/org/app/style.css")).toExternalForm());
+                    root.applyCss();
+                    root.layout();
+                } catch (Exception e) {
+                    failure.set(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+            if (!done.await(60, TimeUnit.SECONDS)) {
+                logger.accept("⚠ The main window took over 60 s to build, JavaFX classes may be missing");
+            } else if (failure.get() != null) {
+                logger.accept("⚠ Could not build the main window: " + failure.get());
+            }
+        } catch (RuntimeException | InterruptedException e) {
+            // no display (e.g. a headless build agent): the archive then lacks most JavaFX classes
+            logger.accept("⚠ JavaFX unavailable, its classes are left out: " + e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException ignored) {
+            // only a temp folder
+        }
+    }
+}
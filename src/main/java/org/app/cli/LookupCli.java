@@ -0,0 +1,58 @@
+package org.app.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.app.service.DeclarationIndex;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Looks MRNs, containers or transport references up in the declaration
+ * index: was it billed before, and from which PDF and run. Prints JSON
+ * (value to matching declarations) on stdout.
+ *
+ * <pre>
+ * java -cp import-declaration-reader-lpp.jar:libs/* org.app.NewLauncher --lookup VALUE [VALUE ...]
+ * </pre>
+ */
+public final class LookupCli {
+    private static final String USAGE = "Usage: --lookup VALUE [VALUE ...]\n"
+            + "  VALUE  an MRN, container number or transport reference (case-insensitive)";
+
+    private final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private LookupCli() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(new LookupCli().run(args, DeclarationIndex.shared()));
+    }
+
+    /** Returns the process exit code: 0 every value found, 1 some not found or no index, 2 bad arguments. */
+    int run(String[] args, DeclarationIndex index) {
+        if (args.length == 0 || "-h".equals(args[0]) || "--help".equals(args[0])) {
+            System.err.println(USAGE);
+            return args.length == 0 ? 2 : 0;
+        }
+        ObjectNode out = mapper.createObjectNode();
+        int missing = 0;
+        try {
+            for (String value : args) {
+                List<DeclarationIndex.Entry> found = index.lookup(value);
+                ArrayNode list = out.putArray(value);
+                found.forEach(e -> list.add(e.toJson(mapper)));
+                if (found.isEmpty()) {
+                    missing++;
+                }
+            }
+            System.out.println(mapper.writeValueAsString(out));
+        } catch (IOException e) {
+            System.err.println("Could not read the declaration index " + index.file() + ": " + e.getMessage());
+            return 1;
+        }
+        return missing == 0 ? 0 : 1;
+    }
+}
@@ -0,0 +1,40 @@
+package org.app.controller;
+
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.HBox;
+import org.app.service.ExtractionProgress;
+import org.app.service.FolderJob;
+
+/** A row of the job list: the job's own progress bar and its status line. */
+class JobCell extends ListCell<FolderJob> {
+    private final ProgressBar bar = new ProgressBar(0);
+    private final Label label = new Label();
+    private final HBox box = new HBox(10, bar, label);
+
+    JobCell() {
+        bar.setPrefWidth(120);
+        box.setAlignment(Pos.CENTER_LEFT);
+    }
+
+    @Override
+    protected void updateItem(FolderJob job, boolean empty) {
+        super.updateItem(job, empty);
+        if (empty || job == null) {
+            setGraphic(null);
+            return;
+        }
+        ExtractionProgress p = job.progress();
+        if (job.status() == FolderJob.Status.DONE) {
+            bar.setProgress(1);
+        } else if (p != null && p.total() > 0) {
+            bar.setProgress((double) p.done() / p.total());
+        } else {
+            bar.setProgress(0);
+        }
+        label.setText(job.describe());
+        setGraphic(box);
+    }
+}
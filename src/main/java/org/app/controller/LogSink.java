@@ -0,0 +1,81 @@
+package org.app.controller;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ListView;
+import javafx.util.Duration;
+import org.app.helper.SessionLog;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Logger for the services, callable from any thread. Lines are queued and
+ * moved into the {@link ListView} at most once per frame, in one change,
+ * and the view keeps only the latest {@link #CAPACITY} lines; the whole log
+ * goes to the {@link SessionLog} file. So the FX thread does the same
+ * bounded work per frame however much is logged.
+ */
+public class LogSink implements Consumer<String> {
+    private static final int CAPACITY = Integer.getInteger("idr.log.viewLines", 5_000);
+    private static final Duration FRAME = Duration.millis(100);
+
+    private final ListView<String> view;
+    private final SessionLog sessionLog;
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+    private final Timeline flusher;
+
+    public LogSink(ListView<String> view, SessionLog sessionLog) {
+        this.view = view;
+        this.sessionLog = sessionLog;
+        this.flusher = new Timeline(new KeyFrame(FRAME, e -> flush()));
+        flusher.setCycleCount(Animation.INDEFINITE);
+    }
+
+    /** Starts moving queued lines into the view; call on the FX thread. */
+    public void start() {
+        flusher.play();
+    }
+
+    public void stop() {
+        flusher.stop();
+    }
+
+    @Override
+    public void accept(String line) {
+        pending.add(line);
+        sessionLog.append(line);
+    }
+
+    private void flush() {
+        // 1) take what arrived since the last frame, only the tail that can be shown
+        ArrayDeque<String> batch = new ArrayDeque<>();
+        String line;
+        while ((line = pending.poll()) != null) {
+            batch.add(line);
+            if (batch.size() > CAPACITY) {
+                batch.removeFirst();
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // 2) one add and at most one trim per frame
+        ObservableList<String> items = view.getItems();
+        int overflow = items.size() + batch.size() - CAPACITY;
+        if (overflow >= items.size()) {
+            items.setAll(batch);
+        } else {
+            if (overflow > 0) {
+                items.remove(0, overflow);
+            }
+            items.addAll(batch);
+        }
+        view.scrollTo(items.size() - 1);
+    }
+}
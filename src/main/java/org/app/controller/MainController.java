@@ -1,332 +1,326 @@
 package org.app.controller;
 
-import com.opencsv.CSVWriter;
 import javafx.application.Platform;
-import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.RadioButton;
-import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
 import javafx.scene.control.ToggleGroup;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.Stage;
+import org.app.helper.LaunchClock;
+import org.app.helper.SessionLog;
+import org.app.model.BillingMode;
 import org.app.model.ImportDeclaration;
+import org.app.service.DeclarationIndex;
+import org.app.service.ExtractionProgress;
+import org.app.service.FolderJob;
+import org.app.service.FolderWatcher;
+import org.app.service.JobQueue;
+import org.app.service.PdfExtractor;
 import org.app.service.PdfFolderService;
+import org.app.service.ResultCache;
 
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MainController {
+    /** -Didr.prewarm=false: start the extractor with the first folder instead of at launch. */
+    private static final boolean PREWARM = Boolean.parseBoolean(System.getProperty("idr.prewarm", "true"));
+
     @FXML
     private Button browseButton;
     @FXML
-    private TextArea logArea;
+    private CheckBox subfoldersCheck;
+    @FXML
+    private Button watchButton;
+    @FXML
+    private ListView<String> logList;
     @FXML
     private ProgressIndicator spinner;
     @FXML
+    private ProgressBar progressBar;
+    @FXML
+    private Label progressLabel;
+    @FXML
+    private Button cancelButton;
+    @FXML
+    private Button upButton;
+    @FXML
+    private Button downButton;
+    @FXML
+    private ListView<FolderJob> jobList;
+    @FXML
     private RadioButton cuFizicRadio;
     @FXML
     private RadioButton faraFizicRadio;
+    @FXML
+    private TextField lookupField;
+    @FXML
+    private Button lookupButton;
     private final ToggleGroup fizicToggle = new ToggleGroup();
+    // read by the watcher thread
+    private volatile BillingMode mode;
+    private FolderWatcher watcher;
+    // services log straight into this from their threads
+    private LogSink logSink;
+    private JobQueue jobs;
+    // job changes arrive per file from the workers; one refresh per pulse is enough
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    // cold start: when the first folder was queued, and whether its first result was logged
+    private volatile long firstQueuedNanos;
+    private boolean firstResultLogged;
 
 
     @FXML
     public void initialize() {
         cuFizicRadio.setToggleGroup(fizicToggle);
         faraFizicRadio.setToggleGroup(fizicToggle);
+        fizicToggle.selectedToggleProperty().addListener((obs, old, now) -> mode = selectedMode());
         cuFizicRadio.setSelected(true); // Optionally set a default
+
+        SessionLog sessionLog = SessionLog.shared();
+        logSink = new LogSink(logList, sessionLog);
+        logSink.start();
+        log("Full log: " + sessionLog.file());
+
+        jobs = new JobQueue(JobQueue.DEFAULT_MAX_RUNNING, logSink);
+        jobs.setChangeListener(this::jobsChanged);
+        jobList.setCellFactory(v -> new JobCell());
+        // cancel, up and down act on the selected job
+        cancelButton.disableProperty().bind(jobList.getSelectionModel().selectedItemProperty().isNull());
+        upButton.disableProperty().bind(jobList.getSelectionModel().selectedItemProperty().isNull());
+        downButton.disableProperty().bind(jobList.getSelectionModel().selectedItemProperty().isNull());
+    }
+
+    /**
+     * Called once the window is showing: logs how long that took and
+     * prepares the extractor, the result cache and the declaration index
+     * in the background, so the first folder doesn't wait for them.
+     */
+    public void windowShown() {
+        log("⏱ Window shown " + LaunchClock.elapsed() + " after launch");
+        if (!PREWARM) {
+            return;
+        }
+        Thread t = new Thread(() -> {
+            long t0 = System.nanoTime();
+            try {
+                PdfExtractor extractor = PdfExtractor.shared();
+                extractor.prewarm();
+                log("⏱ " + extractor.name() + " ready " + LaunchClock.elapsed() + " after launch (prepared in "
+                        + LaunchClock.format((System.nanoTime() - t0) / 1_000_000) + ")");
+                ResultCache.shared().size();
+                DeclarationIndex.shared().size();
+            } catch (Exception ex) {
+                log("⚠ Could not prepare the extractor ahead: " + ex.getMessage());
+            }
+        }, "extractor-prewarm");
+        t.setDaemon(true);
+        // below the FX thread, which is still painting the window
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        t.start();
     }
 
     @FXML
-    private void onBrowse() {
+    private void onWatch() {
+        if (watcher != null) {
+            watcher.stop();
+            return;
+        }
         File folder = new DirectoryChooser()
-                .showDialog((Stage) browseButton.getScene().getWindow());
+                .showDialog((Stage) watchButton.getScene().getWindow());
         if (folder == null) {
             log("Folder selection cancelled.");
             return;
         }
-        log("Processing folder: " + folder);
 
-        // 1) Create a Task that does the work off the FX thread
-        Task<List<ImportDeclaration>> task = new Task<>() {
-            @Override
-            protected List<ImportDeclaration> call() throws Exception {
-                PdfFolderService svc = new PdfFolderService(line ->
-                        Platform.runLater(() -> log(line))
-                );
-                return svc.processFolder(folder);
-            }
-        };
+        PdfFolderService svc = new PdfFolderService(logSink);
+        FolderWatcher w = new FolderWatcher(folder.toPath(), svc, () -> mode, logSink);
+        watcher = w;
+        watchButton.setText("Stop Watching");
 
-        // 2) Wire its messageProperty to your logArea
-        task.messageProperty().addListener((obs, old, msg) -> {
-            if (msg != null && !msg.isBlank()) {
-                log(msg);
+        Thread t = new Thread(() -> {
+            try {
+                w.run();
+            } catch (Exception ex) {
+                log("Fatal: " + ex.getMessage());
+            } finally {
+                Platform.runLater(() -> {
+                    watcher = null;
+                    watchButton.setText("Watch Folder");
+                });
             }
-        });
-
-        // Bind spinner visibility to the fact that the task is running
-        spinner.visibleProperty().bind(task.runningProperty());
-
-        // Disable your browse button while the task is running
-        browseButton.disableProperty().bind(task.runningProperty());
+        }, "folder-watcher");
+        t.setDaemon(true);
+        t.start();
+    }
 
-        // 3) When it succeeds, write out the CSV on the FX thread
-        task.setOnSucceeded(e -> {
+    @FXML
+    private void onLookup() {
+        String value = lookupField.getText().trim();
+        if (value.isEmpty()) {
+            return;
+        }
+        lookupButton.setDisable(true);
+        // the first lookup loads the index from disk
+        Thread t = new Thread(() -> {
             try {
-                // Use the selected radio button to decide which method to call
-                if (cuFizicRadio.isSelected()) {
-                    writeCsvCuFizic(new File(folder, "output.csv"), task.getValue());
-                } else if (faraFizicRadio.isSelected()) {
-                    writeCsvFaraFizic(new File(folder, "output.csv"), task.getValue());
-                } else {
-                    log("Please select CU FIZIC or FARA FIZIC before proceeding.");
+                List<DeclarationIndex.Entry> found = DeclarationIndex.shared().lookup(value);
+                if (found.isEmpty()) {
+                    log("🔎 " + value + ": not in the index");
+                }
+                for (DeclarationIndex.Entry e : found) {
+                    log("🔎 " + value + ": MRN " + e.mrn() + " in " + e.describe());
                 }
             } catch (Exception ex) {
-                log("Error writing CSV: " + ex.getMessage());
+                log("Lookup failed: " + ex.getMessage());
+            } finally {
+                Platform.runLater(() -> lookupButton.setDisable(false));
             }
-        });
-        task.setOnFailed(e -> {
-            log("Fatal: " + task.getException().getMessage());
-        });
-
-        // 4) Kick it off
-        new Thread(task, "pdf-extractor").start();
+        }, "index-lookup");
+        t.setDaemon(true);
+        t.start();
     }
 
-    private void writeCsvCuFizic(File outFile, List<ImportDeclaration> list) throws IOException {
-        try (CSVWriter writer = new CSVWriter(new FileWriter(outFile))) {
-            // Header
-            writer.writeNext(new String[]{
-                    "nr.crt",
-                    "CIF/CNP",
-                    "den. client",
-                    "deviz",
-                    "Produs",
-                    "Serie produs",
-                    "Cant",
-                    "UM",
-                    "Pret FTVA",
-                    "cota TVA",
-                    "nota produs",
-                    "scutit TVA (0/1)",
-                    "motiv scutire TVA"
-            });
-
-            int counter = 1;
-            for (ImportDeclaration dto : list) {
-
-                String productNoteDocumentReference;
-
-                if (dto.getReferintaDocument().contains("26ROBU1030"))
-                    productNoteDocumentReference = "OTP - " + dto.getReferintaDocument() + " - " + dto.getNrContainer();
-                else if (dto.getReferintaDocument().contains("26ROCT1900"))
-                    productNoteDocumentReference = "CT - " + dto.getReferintaDocument() + " - " + dto.getNrContainer();
-                else
-                    productNoteDocumentReference = dto.getReferintaDocument() + " - " + dto.getNrContainer();
-
-                String productNotePMrn;
-
-                if (dto.getMrn().contains("26ROBU1030"))
-                    productNotePMrn = "OTP - "  + dto.getMrn() + " - " + dto.getNrContainer();
-                else if (dto.getReferintaDocument().contains("26ROCT1900"))
-                    productNotePMrn = "CT - " + dto.getMrn() + " - " + dto.getNrContainer();
-                else
-                    productNotePMrn = dto.getMrn() + " - " + dto.getNrContainer();
-
-
-
-                // --- 1) transit row ---
-                String[] transit = {
-                        String.valueOf(counter),      // nr.crt
-                        "PL 5831014898",                   // CIF/CNP
-                        "LPP S.A",               // den client
-                        "EUR",                             // deviz
-                        "TRANSIT",                      // produs
-                        "",                             // Serie produs
-                        "1",                            // Cant
-                        "BUC",                          // UM
-                        "75",                           // Pret FTVA
-                        "0",                           // cota TVA
-                        productNoteDocumentReference,     // nota produs
-                        "",                             // scutit TVA
-                        ""                              // motiv scutire TVA
-                };
-                writer.writeNext(transit);
-
-                // --- 2) physical control
-                String[] physicalControl = {
-                        String.valueOf(counter),      // nr.crt
-                        "",                             // CIF/CNP
-                        "",                             // den client
-                        "EUR",                             // deviz
-                        "PHYSICAL CONTROL",                      // produs
-                        "",                             // Serie produs
-                        "4",                            // Cant
-                        "BUC",                          // UM
-                        "22",                           // Pret FTVA
-                        "0",                           // cota TVA
-                        productNoteDocumentReference,     // nota produs
-                        "",                             // scutit TVA
-                        ""                              // motiv scutire TVA
-                };
-                writer.writeNext(physicalControl);
-
-                // --- 3) PRIMARY CUSTOMS DECLARATION row ---
-                String[] primary = {
-                        String.valueOf(counter),                    // nr.crt
-                        "",                                        //CIF/CNP
-                        "",                                         // den client
-                        "EUR",                                      // deviz
-                        "PRIMARY CUSTOMS DECLARATION",              // produs
-                        "",                                         // Serie produs
-                        "1",                                        // Cant
-                        "BUC",                                      // UM
-                        "50",                                       // Pret FTVA logic
-                        "0",                                       // cota TVA
-                        productNotePMrn,                  // nota produs
-                        "",                                         // scutit TVA
-                        ""                                          // motiv scutire TVA
-                };
-                writer.writeNext(primary);
+    @FXML
+    private void onBrowse() {
+        File folder = new DirectoryChooser()
+                .showDialog((Stage) browseButton.getScene().getWindow());
+        if (folder == null) {
+            log("Folder selection cancelled.");
+            return;
+        }
+        // Use the selected radio button to decide which layout to write
+        BillingMode mode = selectedMode();
+        if (mode == null) {
+            log("Please select CU FIZIC or FARA FIZIC before proceeding.");
+            return;
+        }
 
-                // --- 4) ADDITIONAL hs row ---
-                if (Integer.parseInt(dto.getNrArticole()) > 1) {
-                    String[] additionalHsCode = {
-                            String.valueOf(counter),  // nr.crt
-                            "",                             // CIF/CNP
-                            "",                             // den client
-                            "EUR",                         // deviz
-                            "ADDITIONAL HS CODE",          // produs
-                            "",                            // Serie produs
-                            String.valueOf(Integer.parseInt(dto.getNrArticole()) - 1),                        // Cant
-                            "BUC",                        // UM
-                            "5",                           // Pret FTVA = 2.5% × A00
-                            "0",                             // cota TVA
-                            productNotePMrn,                 // nota produs
-                            "",                            // scutit TVA
-                            ""                             // motiv scutire TVA
-                    };
-                    writer.writeNext(additionalHsCode);
+        // the chosen folder becomes a job; with "Include subfolders" the folder and each
+        // direct subfolder holding PDFs do, each with its own output.csv
+        boolean subfolders = subfoldersCheck.isSelected();
+        Thread t = new Thread(() -> {
+            try {
+                // listing a share can take a while
+                List<Path> folders = subfolders
+                        ? PdfFolderService.foldersWithPdfs(folder.toPath())
+                        : List.of(folder.toPath());
+                if (folders.isEmpty()) {
+                    log("No PDF files found in: " + folder);
                 }
-
-                counter++;
+                for (Path f : folders) {
+                    FolderJob job = jobs.add(f, mode);
+                    if (job != null && firstQueuedNanos == 0) {
+                        firstQueuedNanos = System.nanoTime();
+                    }
+                    log(job == null ? "Already queued: " + f : "Queued #" + job.id() + ": " + f);
+                }
+            } catch (Exception ex) {
+                log("Could not list " + folder + ": " + ex.getMessage());
             }
-        }
-
-        log("CSV written to: " + outFile.getAbsolutePath());
+        }, "folder-scan");
+        t.setDaemon(true);
+        t.start();
     }
 
-    private void writeCsvFaraFizic(File outFile, List<ImportDeclaration> list) throws Exception {
-        try (CSVWriter writer = new CSVWriter(new FileWriter(outFile))) {
-            // 1) Header
-            writer.writeNext(new String[]{
-                    "nr.crt",
-                    "CIF/CNP",
-                    "den. client",
-                    "deviz",
-                    "Produs",
-                    "Serie produs",
-                    "Cant",
-                    "UM",
-                    "Pret FTVA",
-                    "cota TVA",
-                    "nota produs",
-                    "scutit TVA (0/1)",
-                    "motiv scutire TVA"
-            });
-
-            int counter = 1;
-            for (ImportDeclaration dto : list) {
-                String productNoteDocumentReference;
-
-                if (dto.getReferintaDocument().contains("26ROBU1030"))
-                    productNoteDocumentReference = "OTP - " + dto.getReferintaDocument() + " - " + dto.getNrContainer();
-                else if (dto.getReferintaDocument().contains("26ROCT1900"))
-                    productNoteDocumentReference = "CT - " + dto.getReferintaDocument() + " - " + dto.getNrContainer();
-                else
-                    productNoteDocumentReference = dto.getReferintaDocument() + " - " + dto.getNrContainer();
-
-                String productNotePMrn;
+    @FXML
+    private void onCancel() {
+        FolderJob job = jobList.getSelectionModel().getSelectedItem();
+        if (job != null && !job.status().isFinished()) {
+            log("Cancelling #" + job.id() + " " + job.folder().getFileName() + "...");
+            jobs.cancel(job);
+        }
+    }
 
-                if (dto.getMrn().contains("26ROBU1030"))
-                    productNotePMrn = "OTP - "  + dto.getMrn() + " - " + dto.getNrContainer();
-                else if (dto.getReferintaDocument().contains("26ROCT1900"))
-                    productNotePMrn = "CT - " + dto.getMrn() + " - " + dto.getNrContainer();
-                else
-                    productNotePMrn = dto.getMrn() + " - " + dto.getNrContainer();
+    @FXML
+    private void onMoveUp() {
+        moveSelected(-1);
+    }
 
+    @FXML
+    private void onMoveDown() {
+        moveSelected(1);
+    }
 
-                // --- 1) transit row ---
-                String[] transit = {
-                        String.valueOf(counter),      // nr.crt
-                        "PL 5831014898",                // CIF/CNP
-                        "LPP S.A",                      // den client
-                        "EUR",                             // deviz
-                        "TRANSIT",                      // produs
-                        "",                             // Serie produs
-                        "1",                            // Cant
-                        "BUC",                          // UM
-                        "75",                           // Pret FTVA
-                        "0",                           // cota TVA
-                        productNoteDocumentReference,             // nota produs
-                        "",                             // scutit TVA
-                        ""                              // motiv scutire TVA
-                };
-                writer.writeNext(transit);
+    @FXML
+    private void onClearFinished() {
+        jobs.clearFinished();
+    }
 
+    private void moveSelected(int delta) {
+        FolderJob job = jobList.getSelectionModel().getSelectedItem();
+        if (job != null && jobs.move(job, delta)) {
+            refreshJobs();
+        }
+    }
 
-                // --- 2) PRIMARY CUSTOMS DECLARATION ---
-                String[] primary = {
-                        String.valueOf(counter),                    // nr.crt
-                        "",                                        // CIF/CNP
-                        "",                                        // den client
-                        "EUR",                                      // deviz
-                        "PRIMARY CUSTOMS DECLARATION",              // produs
-                        "",                               // Serie produs
-                        "1",                                        // Cant
-                        "BUC",                                      // UM
-                        "50",                                       // Pret FTVA logic
-                        "0",                                       // cota TVA
-                        productNotePMrn,                         // nota produs
-                        "",                                         // scutit TVA
-                        ""                                          // motiv scutire TVA
-                };
-                writer.writeNext(primary);
+    private void jobsChanged() {
+        if (refreshPending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                refreshPending.set(false);
+                refreshJobs();
+            });
+        }
+    }
 
+    // FX thread: the list, the overall bar over the running jobs and the spinner
+    private void refreshJobs() {
+        List<FolderJob> all = jobs.jobs();
+        FolderJob selected = jobList.getSelectionModel().getSelectedItem();
+        if (all.equals(jobList.getItems())) {
+            jobList.refresh();
+        } else {
+            jobList.getItems().setAll(all);
+            if (selected != null && all.contains(selected)) {
+                jobList.getSelectionModel().select(selected);
+            }
+        }
 
-                // --- 3) ADDITIONAL HS CODE ---
-                if (Integer.parseInt(dto.getNrArticole()) > 1) {
-                    String[] additionalHsCode = {
-                            String.valueOf(counter),  // nr.crt
-                            "",                         // CIF/CNP
-                            "",                         // den client
-                            "EUR",                         // deviz
-                            "ADDITIONAL HS CODE",       // produs
-                            "",                         // Serie produs
-                            String.valueOf(Integer.parseInt(dto.getNrArticole()) - 1),                        // Cant
-                            "BUC",                      // UM
-                            "5",                 // Pret FTVA = 2.5% × A00
-                            "0",                       // cota TVA
-                            productNotePMrn,    // nota produs
-                            "",                         // scutit TVA
-                            ""                          // motiv scutire TVA
-                    };
-                    writer.writeNext(additionalHsCode);
+        int running = 0, queued = 0, done = 0, total = 0;
+        boolean anyResult = false;
+        for (FolderJob job : all) {
+            anyResult |= job.progress() != null && job.progress().done() > 0;
+            if (job.status() == FolderJob.Status.QUEUED) {
+                queued++;
+            } else if (job.status() == FolderJob.Status.RUNNING) {
+                running++;
+                ExtractionProgress p = job.progress();
+                if (p != null) {
+                    done += p.done();
+                    total += p.total();
                 }
-
-                counter++;
             }
         }
-
-        log("CSV written to: " + outFile.getAbsolutePath());
+        if (!firstResultLogged && anyResult) {
+            firstResultLogged = true;
+            log("⏱ First PDF done " + LaunchClock.elapsed() + " after launch, "
+                    + LaunchClock.format((System.nanoTime() - firstQueuedNanos) / 1_000_000) + " after queueing");
+        }
+        progressBar.setProgress(total == 0 ? 0 : (double) done / total);
+        progressLabel.setText(running + " running · " + queued + " queued"
+                + (total == 0 ? "" : " · " + done + "/" + total + " PDFs"));
+        spinner.setVisible(running > 0);
     }
 
+    private BillingMode selectedMode() {
+        if (cuFizicRadio.isSelected()) {
+            return BillingMode.CU_FIZIC;
+        } else if (faraFizicRadio.isSelected()) {
+            return BillingMode.FARA_FIZIC;
+        }
+        return null;
+    }
 
     private void log(String message) {
-        logArea.appendText(message + "\n");
+        logSink.accept(message);
     }
 }
@@ -0,0 +1,59 @@
+package org.app.helper;
+
+import java.nio.file.Path;
+
+/**
+ * Per-user directories for data the app keeps between launches.
+ */
+public final class AppDirs {
+    private static final String APP_NAME = "import-declaration-reader-lpp";
+
+    private AppDirs() {
+    }
+
+    /**
+     * Root for caches that can be rebuilt at any time. Overridable with -Didr.cache.dir.
+     */
+    public static Path cacheDir() {
+        return userDir("idr.cache.dir", "cache", "Caches", "XDG_CACHE_HOME", ".cache", null);
+    }
+
+    /**
+     * Data the app can't rebuild, like the declaration index. Overridable with -Didr.data.dir.
+     */
+    public static Path dataDir() {
+        return userDir("idr.data.dir", "data", "Application Support", "XDG_DATA_HOME", ".local/share", null);
+    }
+
+    /**
+     * Where session logs go. Overridable with -Didr.log.dir.
+     */
+    public static Path logDir() {
+        return userDir("idr.log.dir", "logs", "Logs", "XDG_STATE_HOME", ".local/state", "logs");
+    }
+
+    /**
+     * The override property, else %LOCALAPPDATA%\APP\windowsSub on Windows,
+     * ~/Library/macDir/APP on macOS, and $xdgVariable (or ~/xdgFallback)/APP,
+     * plus xdgSub when given, elsewhere.
+     */
+    private static Path userDir(String property, String windowsSub, String macDir,
+                                String xdgVariable, String xdgFallback, String xdgSub) {
+        String override = System.getProperty(property);
+        if (override != null && !override.isBlank()) {
+            return Path.of(override);
+        }
+        String os = System.getProperty("os.name").toLowerCase();
+        String home = System.getProperty("user.home");
+        if (os.contains("win")) {
+            String localAppData = System.getenv("LOCALAPPDATA");
+            Path base = localAppData != null ? Path.of(localAppData) : Path.of(home, "AppData", "Local");
+            return base.resolve(APP_NAME).resolve(windowsSub);
+        } else if (os.contains("mac")) {
+            return Path.of(home, "Library", macDir, APP_NAME);
+        }
+        String xdg = System.getenv(xdgVariable);
+        Path dir = (xdg != null && !xdg.isBlank() ? Path.of(xdg) : Path.of(home, xdgFallback)).resolve(APP_NAME);
+        return xdgSub != null ? dir.resolve(xdgSub) : dir;
+    }
+}
@@ -0,0 +1,39 @@
+package org.app.helper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public final class Hashing {
+    private Hashing() {
+    }
+
+    /** Hex SHA-256 of the file's content. */
+    public static String sha256(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return sha256(in);
+        }
+    }
+
+    /** Hex SHA-256 of everything left in the stream; the stream is closed. */
+    public static String sha256(InputStream in) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (DigestInputStream din = new DigestInputStream(in, digest)) {
+            byte[] buf = new byte[64 * 1024];
+            while (din.read(buf) != -1) {
+                // just drain it
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,33 @@
+package org.app.helper;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * Time since this process was launched, for the cold-start lines in the
+ * log. Counts from the OS start time, so the launcher and JVM boot are
+ * included; where that is unknown, from when this class was loaded.
+ */
+public final class LaunchClock {
+    private static final Instant LAUNCHED = ProcessHandle.current().info().startInstant().orElse(Instant.now());
+
+    private LaunchClock() {
+    }
+
+    public static long millis() {
+        return Duration.between(LAUNCHED, Instant.now()).toMillis();
+    }
+
+    /** "850 ms" or "2.4 s" since launch. */
+    public static String elapsed() {
+        return format(millis());
+    }
+
+    public static String format(long millis) {
+        if (millis < 1_000) {
+            return millis + " ms";
+        }
+        return String.format(Locale.ROOT, "%.1f s", millis / 1_000.0);
+    }
+}
@@ -3,46 +3,214 @@ package org.app.helper;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
 
+/**
+ * Locates the extractor process. In order:
+ * <ol>
+ *   <li>-Didr.extractor.path: an extractor binary, or an extract.py run with the interpreter below</li>
+ *   <li>-Didr.extractor.python: that interpreter (needs pdfplumber) running the extract.py bundled in the jar</li>
+ *   <li>the binary bundled for this OS (Windows, macOS, Linux)</li>
+ * </ol>
+ * The first two let servers without a packaged binary run the extractor
+ * from a plain Python install.
+ */
 public class NativeExtractor {
+    // bump when the cache layout changes
+    private static final String CACHE_VERSION = "v1";
+    private static final String SCRIPT_RESOURCE = "/python/extract.py";
+
+    private static Path unpacked;
+    private static Path unpackedScript;
+
+    /** Whether an extractor is configured or bundled for the current OS. */
+    public static boolean isAvailable() {
+        if (configuredPath() != null || configuredPython() != null) {
+            return true;
+        }
+        String resourcePath = resourcePath();
+        return resourcePath != null && NativeExtractor.class.getResource(resourcePath) != null;
+    }
+
+    /** The command line that starts the extractor, without its arguments. */
+    public static synchronized List<String> command() throws IOException {
+        List<String> command = new ArrayList<>();
+        String path = configuredPath();
+        if (path != null) {
+            Path exe = Path.of(path).toAbsolutePath();
+            if (!Files.isRegularFile(exe)) {
+                throw new FileNotFoundException("Extractor not found (idr.extractor.path): " + exe);
+            }
+            if (isScript(exe)) {
+                command.add(python());
+            }
+            command.add(exe.toString());
+        } else if (configuredPython() != null) {
+            command.add(python());
+            command.add(unpackScript().toString());
+        } else {
+            command.add(unpackExtractor().toString());
+        }
+        return command;
+    }
+
     /**
-     * Unpacks the correct native extractor for this OS to a temp file,
-     * makes it executable, and returns its Path.
+     * Unpacks the correct native extractor for this OS into a cache directory
+     * keyed by its SHA-256, makes it executable, and returns its Path. The copy
+     * is written once and reused by later runs and launches.
      */
-    public static Path unpackExtractor() throws IOException {
-        String os = System.getProperty("os.name").toLowerCase();
-        String resourcePath;
-        String suffix;
+    public static synchronized Path unpackExtractor() throws IOException {
+        if (unpacked != null && Files.isExecutable(unpacked)) {
+            return unpacked;
+        }
 
+        String resourcePath = resourcePath();
+        if (resourcePath == null) {
+            throw new UnsupportedOperationException("Unsupported OS: " + System.getProperty("os.name"));
+        }
+        unpacked = unpack(resourcePath, "extractor");
+        return unpacked;
+    }
+
+    /** The bundled extract.py, unpacked like the binaries (for -Didr.extractor.python). */
+    private static Path unpackScript() throws IOException {
+        if (unpackedScript == null || !Files.isRegularFile(unpackedScript)) {
+            unpackedScript = unpack(SCRIPT_RESOURCE, "extractor-script");
+        }
+        return unpackedScript;
+    }
+
+    private static Path unpack(String resourcePath, String cacheName) throws IOException {
+        String fileName = resourcePath.substring(resourcePath.lastIndexOf('/') + 1);
+
+        // 1) hash the embedded file
+        String sha256;
+        try (InputStream in = open(resourcePath)) {
+            sha256 = Hashing.sha256(in);
+        }
+
+        // 2) reuse the cached copy when it is still intact
+        Path root = AppDirs.cacheDir().resolve(cacheName).resolve(CACHE_VERSION);
+        Path dir = root.resolve(sha256);
+        Path target = dir.resolve(fileName);
+        if (!isIntact(target, sha256)) {
+            write(resourcePath, dir, target, sha256);
+        }
+        target.toFile().setExecutable(true, true);
+
+        pruneOtherVersions(root, dir);
+        return target;
+    }
+
+    private static String resourcePath() {
+        String os = System.getProperty("os.name").toLowerCase(Locale.ROOT);
         if (os.contains("win")) {
-            resourcePath = "/native/windows/extract.exe";
-            suffix       = ".exe";
+            return "/native/windows/extract.exe";
         } else if (os.contains("mac")) {
-            resourcePath = "/native/macos/extract";
-            suffix       = "";
-        } else {
-            throw new UnsupportedOperationException("Unsupported OS: " + os);
+            return "/native/macos/extract";
+        } else if (os.contains("linux")) {
+            return "/native/linux/extract";
         }
+        return null;
+    }
 
+    private static String configuredPath() {
+        return blankToNull(System.getProperty("idr.extractor.path"));
+    }
+
+    private static String configuredPython() {
+        return blankToNull(System.getProperty("idr.extractor.python"));
+    }
+
+    // -Didr.extractor.python, else the usual interpreter name for this OS
+    private static String python() {
+        String python = configuredPython();
+        if (python != null) {
+            return python;
+        }
+        return System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("win") ? "python" : "python3";
+    }
+
+    private static boolean isScript(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".py");
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s.trim();
+    }
+
+    private static InputStream open(String resourcePath) throws FileNotFoundException {
         // load the binary from the JAR
-        try (InputStream in = NativeExtractor.class.getResourceAsStream(resourcePath)) {
-            if (in == null) {
-                throw new FileNotFoundException("Resource not found on classpath: " + resourcePath);
-            }
+        InputStream in = NativeExtractor.class.getResourceAsStream(resourcePath);
+        if (in == null) {
+            throw new FileNotFoundException("Resource not found on classpath: " + resourcePath);
+        }
+        return in;
+    }
 
-            // copy to a temporary file
-            Path tmp = Files.createTempFile("pdf-extractor-", suffix);
-            // atomic copy
-            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Copies the resource next to the target and moves it into place, so other
+     * launches never see a half-written file.
+     */
+    private static void write(String resourcePath, Path dir, Path target, String sha256) throws IOException {
+        Files.createDirectories(dir);
+        Path part = Files.createTempFile(dir, "extract-", ".part");
+        try {
+            try (InputStream in = open(resourcePath)) {
+                Files.copy(in, part, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (!isIntact(part, sha256)) {
+                throw new IOException("Unpacked extractor does not match its checksum: " + part);
+            }
+            part.toFile().setExecutable(true, true);
+            try {
+                Files.move(part, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // another launch may have won the race (or holds the file open on Windows)
+            if (!isIntact(target, sha256)) {
+                throw e;
+            }
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
 
-            // make it executable
-            tmp.toFile().setExecutable(true, true);
-            tmp.toFile().deleteOnExit();
+    private static boolean isIntact(Path file, String sha256) {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try {
+            return sha256.equals(Hashing.sha256(file));
+        } catch (IOException e) {
+            return false;
+        }
+    }
 
-            return tmp;
+    /** Best effort: binaries of older builds are removed, ones still in use are left alone. */
+    private static void pruneOtherVersions(Path root, Path keep) {
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                if (dir.equals(keep)) {
+                    continue;
+                }
+                try (Stream<Path> walk = Files.walk(dir)) {
+                    walk.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+                }
+            }
+        } catch (IOException ignored) {
+            // nothing to prune, or not allowed to
         }
     }
 }
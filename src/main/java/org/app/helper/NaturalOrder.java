@@ -0,0 +1,198 @@
+package org.app.helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Natural, case-insensitive order of file names ("decl2" before "decl10"),
+ * the order of output.csv. Digit runs compare by value, leading zeros
+ * ignored; other characters compare lowercased. Names equal that way
+ * ("a01" vs "a1") fall back to plain string order.
+ *
+ * <p>{@link #key(String)} folds a name once into a {@link Key}, so sorting
+ * and ordered inserts compare precomputed keys without allocating.
+ */
+public final class NaturalOrder {
+    /** Natural order, then the raw name; the order output.csv is written in. */
+    public static final Comparator<String> ORDER =
+            ((Comparator<String>) NaturalOrder::compare).thenComparing(Comparator.naturalOrder());
+
+    private NaturalOrder() {
+    }
+
+    /** Natural order alone; 0 for names that only differ in case or leading zeros. */
+    public static int compare(String a, String b) {
+        int ia = 0, ib = 0, na = a.length(), nb = b.length();
+        while (ia < na && ib < nb) {
+            char ca = Character.toLowerCase(a.charAt(ia));
+            char cb = Character.toLowerCase(b.charAt(ib));
+
+            // if both chunks are digits, compare as integers
+            if (Character.isDigit(ca) && Character.isDigit(cb)) {
+                int ja = runEnd(a, ia);
+                int jb = runEnd(b, ib);
+                int za = skipZeros(a, ia, ja);
+                int zb = skipZeros(b, ib, jb);
+                int cmp = Integer.compare(ja - za, jb - zb);
+                for (int k = 0; cmp == 0 && k < ja - za; k++) {
+                    cmp = a.charAt(za + k) - b.charAt(zb + k);
+                }
+                if (cmp != 0) {
+                    return cmp;
+                }
+                ia = ja;
+                ib = jb;
+                continue;
+            }
+
+            // otherwise compare chars (case-insensitive)
+            if (ca != cb) {
+                return ca - cb;
+            }
+            ia++;
+            ib++;
+        }
+        return (na - ia) - (nb - ib);
+    }
+
+    public static Key key(String name) {
+        return new Key(name);
+    }
+
+    /** Sorts in {@link #ORDER} of the given names, folding each name once. */
+    public static <T> void sort(List<T> list, Function<? super T, String> name) {
+        List<Keyed<T>> keyed = new ArrayList<>(list.size());
+        for (T item : list) {
+            keyed.add(new Keyed<>(name.apply(item), item));
+        }
+        keyed.sort(null);
+        for (int i = 0; i < keyed.size(); i++) {
+            list.set(i, keyed.get(i).item);
+        }
+    }
+
+    // end of the digit run starting at i
+    private static int runEnd(String s, int i) {
+        int j = i;
+        while (j < s.length() && Character.isDigit(s.charAt(j))) {
+            j++;
+        }
+        return j;
+    }
+
+    // first significant digit of the run [i, j); a run of zeros keeps its last one
+    private static int skipZeros(String s, int i, int j) {
+        while (i < j - 1 && s.charAt(i) == '0') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * A name folded for comparison: one token per character (lowercased) or
+     * per digit run (its first digit as written, then the digits without
+     * leading zeros). Ordered like {@link #ORDER}; equal only for equal names.
+     */
+    public static class Key implements Comparable<Key> {
+        private final String name;
+        private final char[] chars;
+        // per token: start in chars << 1, | 1 for a digit run
+        private final int[] tokens;
+
+        private Key(String name) {
+            this.name = name;
+            int n = name.length();
+            // a digit run takes at most one char more than it had
+            char[] folded = new char[n * 2];
+            int[] starts = new int[n];
+            int length = 0;
+            int count = 0;
+            int i = 0;
+            while (i < n) {
+                char c = Character.toLowerCase(name.charAt(i));
+                if (Character.isDigit(c)) {
+                    int j = runEnd(name, i);
+                    starts[count++] = length << 1 | 1;
+                    folded[length++] = c;
+                    for (int k = skipZeros(name, i, j); k < j; k++) {
+                        folded[length++] = name.charAt(k);
+                    }
+                    i = j;
+                } else {
+                    starts[count++] = length << 1;
+                    folded[length++] = c;
+                    i++;
+                }
+            }
+            this.chars = Arrays.copyOf(folded, length);
+            this.tokens = Arrays.copyOf(starts, count);
+        }
+
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public int compareTo(Key o) {
+            int cmp = compareFolded(o);
+            return cmp != 0 ? cmp : name.compareTo(o.name);
+        }
+
+        private int compareFolded(Key o) {
+            int n = Math.min(tokens.length, o.tokens.length);
+            for (int t = 0; t < n; t++) {
+                int sa = tokens[t] >>> 1;
+                int sb = o.tokens[t] >>> 1;
+                if ((tokens[t] & o.tokens[t] & 1) != 0) {
+                    // two numbers: more significant digits is bigger, then digit by digit
+                    int la = end(t) - sa - 1;
+                    int lb = o.end(t) - sb - 1;
+                    if (la != lb) {
+                        return Integer.compare(la, lb);
+                    }
+                    for (int k = 1; k <= la; k++) {
+                        if (chars[sa + k] != o.chars[sb + k]) {
+                            return chars[sa + k] - o.chars[sb + k];
+                        }
+                    }
+                } else if (chars[sa] != o.chars[sb]) {
+                    // characters, or a number against a character by its first digit
+                    return chars[sa] - o.chars[sb];
+                }
+            }
+            return Integer.compare(tokens.length, o.tokens.length);
+        }
+
+        private int end(int token) {
+            return token + 1 < tokens.length ? tokens[token + 1] >>> 1 : chars.length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && name.equals(((Key) o).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    // a key carrying its item, so sorting compares without another indirection
+    private static final class Keyed<T> extends Key {
+        final T item;
+
+        Keyed(String name, T item) {
+            super(name);
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.app.helper;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The full log of one application session, in a file under
+ * {@link AppDirs#logDir()}. Lines are handed to a background writer thread,
+ * so logging never waits on the disk; the UI only keeps the latest lines.
+ */
+public class SessionLog implements Closeable {
+    private static final int KEEP_SESSIONS = 20;
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final DateTimeFormatter LINE_STAMP = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    // tells the writer thread to finish
+    private static final String EOF = new String("EOF");
+
+    private static SessionLog shared;
+
+    private final Path file;
+    private final BlockingQueue<String> pending = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public SessionLog(Path dir) {
+        this.file = dir.resolve("session-" + LocalDateTime.now().format(FILE_STAMP) + ".log");
+        this.writer = new Thread(this::drain, "session-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** The log of this session, flushed and closed on JVM exit. */
+    public static synchronized SessionLog shared() {
+        if (shared == null) {
+            shared = new SessionLog(AppDirs.logDir());
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::close, "session-log-shutdown"));
+        }
+        return shared;
+    }
+
+    /** Closes the session's log if one was opened, without opening one. */
+    public static synchronized void closeShared() {
+        if (shared != null) {
+            shared.close();
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /** Queues a line for the file; safe from any thread. */
+    public void append(String line) {
+        if (!closed) {
+            pending.add(LocalTime.now().format(LINE_STAMP) + " " + line);
+        }
+    }
+
+    /** Writes what is still queued, waiting at most two seconds. */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pending.add(EOF);
+        try {
+            writer.join(2_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        BufferedWriter out = null;
+        try {
+            Files.createDirectories(file.getParent());
+            pruneOldSessions();
+            // a second launch in the same second appends to the same file
+            out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            while (true) {
+                String line = pending.take();
+                // write everything queued, flush once the queue is empty
+                while (line != null) {
+                    if (line == EOF) {
+                        return;
+                    }
+                    out.write(line);
+                    out.newLine();
+                    line = pending.poll();
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // no log file this session; the UI still shows the latest lines
+            System.err.println("Session log unavailable: " + e.getMessage());
+            closed = true;
+            pending.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                    // nothing left to report it to
+                }
+            }
+        }
+    }
+
+    private void pruneOldSessions() {
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            List<Path> sessions = files
+                    .filter(p -> p.getFileName().toString().matches("session-\\d{8}-\\d{6}\\.log"))
+                    .sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+            for (Path old : sessions.subList(Math.min(KEEP_SESSIONS - 1, sessions.size()), sessions.size())) {
+                Files.deleteIfExists(old);
+            }
+        } catch (IOException ignored) {
+            // best effort
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package org.app.model;
+
+/** Which billing layout output.csv gets: with or without the physical control row. */
+public enum BillingMode {
+    CU_FIZIC,
+    FARA_FIZIC
+}
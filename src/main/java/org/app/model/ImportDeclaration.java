@@ -13,4 +13,6 @@ public class ImportDeclaration {
     private String nrArticole;
     private String nrContainer;
     private String referintaDocument;
+    // source PDF name, as reported by the extractor
+    private String file;
 }
@@ -0,0 +1,139 @@
+package org.app.service;
+
+import com.opencsv.CSVWriter;
+import org.app.model.BillingMode;
+import org.app.model.ImportDeclaration;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Writes the billing CSV (output.csv) one declaration at a time, through a
+ * buffered UTF-8 writer, following the rows of a {@link BillingTemplate}.
+ * Declarations are expected in natural filename order; nr.crt counts them.
+ * Fed by a run as its declarations arrive ({@link DeclarationSink}), or
+ * with a whole list by {@link #write}.
+ */
+public class BillingCsvWriter implements Closeable, DeclarationSink {
+    private final Path file;
+    // where file goes on commit(), null when writing straight to the output
+    private final Path target;
+    private boolean committed;
+    private final CSVWriter writer;
+    private final BillingTemplate template;
+    private final List<BillingTemplate.Row> rows;
+    private final BillingTemplate.Values values = new BillingTemplate.Values();
+    private final String[] line;
+    private int count;
+
+    public BillingCsvWriter(Path outFile, BillingMode mode, BillingTemplate template) throws IOException {
+        this(outFile, null, mode, template);
+    }
+
+    private BillingCsvWriter(Path file, Path target, BillingMode mode, BillingTemplate template) throws IOException {
+        this.file = file;
+        this.target = target;
+        this.template = template;
+        this.rows = template.rows(mode);
+        String[] header = template.header();
+        this.line = new String[header.length];
+        this.writer = new CSVWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+        writer.writeNext(header);
+    }
+
+    /**
+     * A writer for a run that streams its rows: they go to outFile.part, and
+     * {@link #commit()} puts it in place of outFile, so a run that fails
+     * halfway leaves the previous output.csv as it was.
+     */
+    public static BillingCsvWriter open(Path outFile, BillingMode mode) throws IOException {
+        Path part = outFile.resolveSibling(outFile.getFileName() + ".part");
+        return new BillingCsvWriter(part, outFile, mode, BillingTemplate.shared());
+    }
+
+    /** Writes a whole list with the shared template. */
+    public static void write(Path outFile, Iterable<ImportDeclaration> list, BillingMode mode) throws IOException {
+        try (BillingCsvWriter w = new BillingCsvWriter(outFile, mode, BillingTemplate.shared())) {
+            for (ImportDeclaration dto : list) {
+                w.accept(dto);
+            }
+        }
+    }
+
+    /**
+     * Writes the billing rows of the next declaration.
+     *
+     * @throws IllegalArgumentException when its nrArticole is not a number
+     */
+    @Override
+    public void accept(ImportDeclaration dto) throws IOException {
+        values.counter = count + 1;
+        values.notes = template.notesFor(dto);
+        // parsed at the first row that needs it, so a bad count fails after the same rows as the old writer
+        boolean counted = false;
+        for (BillingTemplate.Row row : rows) {
+            if (row.needsArticole && !counted) {
+                values.articole = articole(dto);
+                counted = true;
+            }
+            if (values.articole < row.minArticole) {
+                continue;
+            }
+            for (int i = 0; i < line.length; i++) {
+                line[i] = row.cells[i].value(values);
+            }
+            writer.writeNext(line);
+        }
+        count++;
+        // CSVWriter keeps write errors instead of throwing them
+        if (writer.getException() != null) {
+            throw writer.getException();
+        }
+    }
+
+    /** Declarations written so far. */
+    public int count() {
+        return count;
+    }
+
+    /** Finishes a writer from {@link #open}: the part file replaces the output. */
+    public void commit() throws IOException {
+        if (target == null) {
+            throw new IllegalStateException("not a writer from open()");
+        }
+        writer.close();
+        try {
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        committed = true;
+    }
+
+    /** Closes the file; a writer from {@link #open} that wasn't committed drops its part file. */
+    @Override
+    public void close() throws IOException {
+        if (committed) {
+            return;
+        }
+        writer.close();
+        if (target != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static int articole(ImportDeclaration dto) {
+        try {
+            return Integer.parseInt(dto.getNrArticole());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid nrArticole '" + dto.getNrArticole()
+                    + "' in " + dto.getFile(), e);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.app.model.BillingMode;
+import org.app.model.ImportDeclaration;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The billing rows each declaration turns into, per {@link BillingMode}:
+ * prices, products and the customs-office note prefixes. Loaded from
+ * {@code /org/app/billing/billing.json}, or from the file named by
+ * {@code -Didr.billing.template} so rates can change without a rebuild.
+ *
+ * <p>A cell is literal text or one of {@code ${nr}} (nr.crt),
+ * {@code ${note:<name>}} (a note from {@code notes}) and
+ * {@code ${articole-1}}. A row with {@code minArticole} is only written
+ * when the declaration has at least that many articles.
+ */
+public final class BillingTemplate {
+    private static final String RESOURCE = "/org/app/billing/billing.json";
+
+    private static final Map<String, Function<ImportDeclaration, String>> FIELDS = Map.of(
+            "nrDestinatar", ImportDeclaration::getNrDestinatar,
+            "mrn", ImportDeclaration::getMrn,
+            "nrArticole", ImportDeclaration::getNrArticole,
+            "nrContainer", ImportDeclaration::getNrContainer,
+            "referintaDocument", ImportDeclaration::getReferintaDocument,
+            "file", ImportDeclaration::getFile
+    );
+
+    private static BillingTemplate shared;
+
+    private final String[] header;
+    private final List<Note> notes;
+    private final Map<BillingMode, List<Row>> rows;
+
+    private BillingTemplate(String[] header, List<Note> notes, Map<BillingMode, List<Row>> rows) {
+        this.header = header;
+        this.notes = notes;
+        this.rows = rows;
+    }
+
+    public static synchronized BillingTemplate shared() throws IOException {
+        if (shared == null) {
+            String override = System.getProperty("idr.billing.template");
+            shared = override != null ? load(Path.of(override)) : loadDefault();
+        }
+        return shared;
+    }
+
+    public static BillingTemplate load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return parse(new ObjectMapper().readTree(in), file.toString());
+        }
+    }
+
+    public static BillingTemplate loadDefault() throws IOException {
+        try (InputStream in = BillingTemplate.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new FileNotFoundException("Resource not found on classpath: " + RESOURCE);
+            }
+            return parse(new ObjectMapper().readTree(in), RESOURCE);
+        }
+    }
+
+    public String[] header() {
+        return header.clone();
+    }
+
+    /** Row templates of one mode, in the order they are written. */
+    List<Row> rows(BillingMode mode) {
+        return rows.get(mode);
+    }
+
+    /** Every note once per declaration, indexed as referenced by the cells. */
+    String[] notesFor(ImportDeclaration dto) {
+        String[] values = new String[notes.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = notes.get(i).render(dto);
+        }
+        return values;
+    }
+
+    private static BillingTemplate parse(JsonNode root, String source) throws IOException {
+        try {
+            String[] header = strings(root.path("header"));
+            if (header.length == 0) {
+                throw new IllegalArgumentException("header is missing");
+            }
+
+            List<Note> notes = new ArrayList<>();
+            Map<String, Integer> noteIndex = new HashMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> it = root.path("notes").fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> e = it.next();
+                noteIndex.put(e.getKey(), notes.size());
+                notes.add(Note.parse(e.getKey(), e.getValue()));
+            }
+
+            Map<BillingMode, List<Row>> rows = new EnumMap<>(BillingMode.class);
+            for (BillingMode mode : BillingMode.values()) {
+                JsonNode list = root.path("modes").path(mode.name());
+                if (!list.isArray() || list.isEmpty()) {
+                    throw new IllegalArgumentException("no rows for mode " + mode);
+                }
+                List<Row> modeRows = new ArrayList<>();
+                for (JsonNode r : list) {
+                    modeRows.add(Row.parse(r, header.length, noteIndex));
+                }
+                rows.put(mode, List.copyOf(modeRows));
+            }
+            return new BillingTemplate(header, List.copyOf(notes), rows);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid billing template " + source + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String[] strings(JsonNode array) {
+        String[] out = new String[array.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = array.get(i).asText();
+        }
+        return out;
+    }
+
+    private static Function<ImportDeclaration, String> field(String name) {
+        Function<ImportDeclaration, String> f = FIELDS.get(name);
+        if (f == null) {
+            throw new IllegalArgumentException("unknown field " + name);
+        }
+        return f;
+    }
+
+    /** Values of one declaration that the cells of a row draw from. */
+    static final class Values {
+        int counter;
+        int articole;
+        String[] notes;
+    }
+
+    interface Cell {
+        String value(Values v);
+    }
+
+    static final class Row {
+        private static final String ARTICOLE = "${articole-1}";
+
+        // Integer.MIN_VALUE: written whatever the count
+        final int minArticole;
+        // the row reads nrArticole, so it must be a number by then
+        final boolean needsArticole;
+        final Cell[] cells;
+
+        private Row(int minArticole, boolean needsArticole, Cell[] cells) {
+            this.minArticole = minArticole;
+            this.needsArticole = needsArticole;
+            this.cells = cells;
+        }
+
+        private static Row parse(JsonNode node, int width, Map<String, Integer> noteIndex) {
+            String[] texts = strings(node.path("cells"));
+            if (texts.length != width) {
+                throw new IllegalArgumentException("row has " + texts.length + " cells, header has " + width);
+            }
+            Cell[] cells = new Cell[width];
+            for (int i = 0; i < width; i++) {
+                cells[i] = cell(texts[i], noteIndex);
+            }
+            boolean hasMin = node.has("minArticole");
+            return new Row(hasMin ? node.get("minArticole").asInt() : Integer.MIN_VALUE,
+                    hasMin || Arrays.asList(texts).contains(ARTICOLE), cells);
+        }
+
+        private static Cell cell(String text, Map<String, Integer> noteIndex) {
+            if (!text.startsWith("${") || !text.endsWith("}")) {
+                return v -> text;
+            }
+            String ref = text.substring(2, text.length() - 1);
+            if (ref.equals("nr")) {
+                return v -> String.valueOf(v.counter);
+            }
+            if (text.equals(ARTICOLE)) {
+                return v -> String.valueOf(v.articole - 1);
+            }
+            if (ref.startsWith("note:")) {
+                Integer index = noteIndex.get(ref.substring(5));
+                if (index == null) {
+                    throw new IllegalArgumentException("unknown note " + ref);
+                }
+                int i = index;
+                return v -> v.notes[i];
+            }
+            throw new IllegalArgumentException("unknown placeholder " + text);
+        }
+    }
+
+    /** Note parts joined by " - ", led by the prefix of the first matching rule. */
+    private static final class Note {
+        final List<Function<ImportDeclaration, String>> parts;
+        final List<Prefix> prefixes;
+
+        private Note(List<Function<ImportDeclaration, String>> parts, List<Prefix> prefixes) {
+            this.parts = parts;
+            this.prefixes = prefixes;
+        }
+
+        static Note parse(String name, JsonNode node) {
+            List<Function<ImportDeclaration, String>> parts = new ArrayList<>();
+            for (String part : strings(node.path("parts"))) {
+                parts.add(field(part));
+            }
+            if (parts.isEmpty()) {
+                throw new IllegalArgumentException("note " + name + " has no parts");
+            }
+            List<Prefix> prefixes = new ArrayList<>();
+            for (JsonNode p : node.path("prefixes")) {
+                prefixes.add(new Prefix(field(p.path("field").asText()),
+                        p.path("contains").asText(), p.path("prefix").asText()));
+            }
+            return new Note(List.copyOf(parts), List.copyOf(prefixes));
+        }
+
+        String render(ImportDeclaration dto) {
+            StringBuilder sb = new StringBuilder();
+            for (Prefix p : prefixes) {
+                String value = p.field.apply(dto);
+                if (value != null && value.contains(p.contains)) {
+                    sb.append(p.prefix);
+                    break;
+                }
+            }
+            for (int i = 0; i < parts.size(); i++) {
+                if (i > 0) {
+                    sb.append(" - ");
+                }
+                sb.append(parts.get(i).apply(dto));
+            }
+            return sb.toString();
+        }
+    }
+
+    private static final class Prefix {
+        final Function<ImportDeclaration, String> field;
+        final String contains;
+        final String prefix;
+
+        Prefix(Function<ImportDeclaration, String> field, String contains, String prefix) {
+            this.field = field;
+            this.contains = contains;
+            this.prefix = prefix;
+        }
+    }
+}
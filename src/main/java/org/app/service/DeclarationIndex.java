@@ -0,0 +1,345 @@
+package org.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.app.helper.AppDirs;
+import org.app.model.ImportDeclaration;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Every declaration ever parsed, keyed by MRN, container and transport
+ * reference, pointing back to its source PDF, folder and run. Held in hash
+ * maps for constant-time lookups and kept on disk as an append-only NDJSON
+ * file: a source parsed again with different fields appends a newer line
+ * that wins on reload, and the file is rewritten once superseded lines
+ * outnumber live ones.
+ */
+public class DeclarationIndex {
+    private static DeclarationIndex shared;
+
+    private final Path file;
+    private final ObjectMapper mapper = new ObjectMapper();
+    // source PDF (absolute path) -> its latest entry
+    private final Map<String, Entry> bySource = new HashMap<>();
+    private final Map<String, List<Entry>> byMrn = new HashMap<>();
+    private final Map<String, List<Entry>> byContainer = new HashMap<>();
+    private final Map<String, List<Entry>> byReference = new HashMap<>();
+    private final List<Entry> pending = new ArrayList<>();
+    private int lines;
+    private boolean loaded;
+
+    public DeclarationIndex(Path file) {
+        this.file = file;
+    }
+
+    public static synchronized DeclarationIndex shared() {
+        if (shared == null) {
+            shared = new DeclarationIndex(AppDirs.dataDir().resolve("index").resolve("declarations.ndjson"));
+        }
+        return shared;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Records a parsed declaration and returns the earlier declarations from
+     * other PDFs it duplicates: the same MRN, or the same container on the
+     * same transport reference. Parsing the same PDF again is no duplicate.
+     */
+    public synchronized List<Duplicate> add(ImportDeclaration d, Path pdf, String run) throws IOException {
+        load();
+        Path source = pdf.toAbsolutePath().normalize();
+        Entry e = new Entry(run, Instant.now().truncatedTo(ChronoUnit.SECONDS).toString(),
+                String.valueOf(source.getParent()), String.valueOf(source.getFileName()),
+                d.getMrn(), d.getNrContainer(), d.getReferintaDocument(), d.getNrDestinatar(), d.getNrArticole());
+
+        List<Duplicate> duplicates = new ArrayList<>();
+        for (Entry other : matches(byMrn, e.mrn)) {
+            if (!other.source().equals(e.source())) {
+                duplicates.add(new Duplicate("MRN", e.mrn, other));
+            }
+        }
+        for (Entry other : matches(byContainer, e.container)) {
+            if (!other.source().equals(e.source())
+                    && key(other.reference) != null && Objects.equals(key(other.reference), key(e.reference))
+                    && !Objects.equals(key(other.mrn), key(e.mrn))) {
+                duplicates.add(new Duplicate("container and reference", e.container + " / " + e.reference, other));
+            }
+        }
+
+        Entry old = bySource.get(e.source());
+        if (old == null || !old.sameFields(e)) {
+            if (old != null) {
+                unindex(old);
+            }
+            index(e);
+            pending.add(e);
+        }
+        return duplicates;
+    }
+
+    /** Declarations whose MRN, container or transport reference is the value (case-insensitive), oldest first. */
+    public synchronized List<Entry> lookup(String value) throws IOException {
+        load();
+        Set<Entry> found = new LinkedHashSet<>();
+        found.addAll(matches(byMrn, value));
+        found.addAll(matches(byContainer, value));
+        found.addAll(matches(byReference, value));
+        List<Entry> list = new ArrayList<>(found);
+        list.sort(Comparator.comparing(Entry::time));
+        return list;
+    }
+
+    public synchronized int size() throws IOException {
+        load();
+        return bySource.size();
+    }
+
+    /** Appends what this session added; compacts the file when it is mostly superseded lines. */
+    public synchronized void flush() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        if (lines + pending.size() > 2 * bySource.size() + 1_000) {
+            compact();
+        } else {
+            try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Entry e : pending) {
+                    w.write(mapper.writeValueAsString(e.toJson(mapper)));
+                    w.newLine();
+                }
+            }
+            lines += pending.size();
+        }
+        pending.clear();
+    }
+
+    // rewrites only the live entries, through a temp file
+    private void compact() throws IOException {
+        Path part = Files.createTempFile(file.getParent(), "declarations-", ".part");
+        try {
+            List<Entry> live = new ArrayList<>(bySource.values());
+            live.sort(Comparator.comparing(Entry::time));
+            try (BufferedWriter w = Files.newBufferedWriter(part, StandardCharsets.UTF_8)) {
+                for (Entry e : live) {
+                    w.write(mapper.writeValueAsString(e.toJson(mapper)));
+                    w.newLine();
+                }
+            }
+            try {
+                Files.move(part, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(part, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            lines = live.size();
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    private void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                lines++;
+                try {
+                    Entry e = Entry.of(mapper.readTree(line));
+                    Entry old = bySource.get(e.source());
+                    if (old != null) {
+                        unindex(old);
+                    }
+                    index(e);
+                } catch (IOException | RuntimeException e) {
+                    // a damaged line (e.g. a crash mid-append) loses one entry, not the index
+                }
+            }
+        }
+    }
+
+    private void index(Entry e) {
+        bySource.put(e.source(), e);
+        put(byMrn, e.mrn, e);
+        put(byContainer, e.container, e);
+        put(byReference, e.reference, e);
+    }
+
+    private void unindex(Entry e) {
+        bySource.remove(e.source());
+        remove(byMrn, e.mrn, e);
+        remove(byContainer, e.container, e);
+        remove(byReference, e.reference, e);
+    }
+
+    private static void put(Map<String, List<Entry>> map, String value, Entry e) {
+        String k = key(value);
+        if (k != null) {
+            map.computeIfAbsent(k, x -> new ArrayList<>(1)).add(e);
+        }
+    }
+
+    private static void remove(Map<String, List<Entry>> map, String value, Entry e) {
+        String k = key(value);
+        List<Entry> list = k == null ? null : map.get(k);
+        if (list != null) {
+            list.remove(e);
+            if (list.isEmpty()) {
+                map.remove(k);
+            }
+        }
+    }
+
+    private static List<Entry> matches(Map<String, List<Entry>> map, String value) {
+        String k = key(value);
+        List<Entry> list = k == null ? null : map.get(k);
+        return list == null ? List.of() : list;
+    }
+
+    // MRNs, containers and references are matched trimmed and upper-cased
+    private static String key(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /** One declaration in the index. */
+    public static final class Entry {
+        private final String run;
+        private final String time;
+        private final String folder;
+        private final String file;
+        private final String mrn;
+        private final String container;
+        private final String reference;
+        private final String recipient;
+        private final String articles;
+
+        Entry(String run, String time, String folder, String file, String mrn, String container,
+              String reference, String recipient, String articles) {
+            this.run = run;
+            this.time = time;
+            this.folder = folder;
+            this.file = file;
+            this.mrn = mrn;
+            this.container = container;
+            this.reference = reference;
+            this.recipient = recipient;
+            this.articles = articles;
+        }
+
+        static Entry of(JsonNode n) {
+            return new Entry(text(n, "run"), text(n, "time"), text(n, "folder"), text(n, "file"),
+                    text(n, "mrn"), text(n, "nrContainer"), text(n, "referintaDocument"),
+                    text(n, "nrDestinatar"), text(n, "nrArticole"));
+        }
+
+        private static String text(JsonNode n, String field) {
+            return n.hasNonNull(field) ? n.get(field).asText() : null;
+        }
+
+        public ObjectNode toJson(ObjectMapper mapper) {
+            ObjectNode n = mapper.createObjectNode();
+            n.put("run", run);
+            n.put("time", time);
+            n.put("folder", folder);
+            n.put("file", file);
+            n.put("mrn", mrn);
+            n.put("nrContainer", container);
+            n.put("referintaDocument", reference);
+            n.put("nrDestinatar", recipient);
+            n.put("nrArticole", articles);
+            return n;
+        }
+
+        String source() {
+            return folder + "/" + file;
+        }
+
+        boolean sameFields(Entry o) {
+            return Objects.equals(mrn, o.mrn) && Objects.equals(container, o.container)
+                    && Objects.equals(reference, o.reference) && Objects.equals(recipient, o.recipient)
+                    && Objects.equals(articles, o.articles);
+        }
+
+        public String run() {
+            return run;
+        }
+
+        public String time() {
+            return String.valueOf(time);
+        }
+
+        public String folder() {
+            return folder;
+        }
+
+        public String file() {
+            return file;
+        }
+
+        public String mrn() {
+            return mrn;
+        }
+
+        /** "folder/file (run ..., time)" for log lines. */
+        public String describe() {
+            return Path.of(folder).resolve(file) + " (run " + run + ", " + time + ")";
+        }
+    }
+
+    /** An earlier declaration a new one matches, and on what. */
+    public static final class Duplicate {
+        private final String on;
+        private final String value;
+        private final Entry earlier;
+
+        Duplicate(String on, String value, Entry earlier) {
+            this.on = on;
+            this.value = value;
+            this.earlier = earlier;
+        }
+
+        public Entry earlier() {
+            return earlier;
+        }
+
+        public String describe() {
+            return on + " " + value + " already in " + earlier.describe();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.app.service;
+
+import org.app.model.ImportDeclaration;
+
+import java.io.IOException;
+
+/**
+ * Takes the parsed declarations of a run one at a time, in
+ * {@link PdfFolderService#FILE_ORDER}, while the run is still extracting;
+ * {@link BillingCsvWriter#accept} is one.
+ */
+@FunctionalInterface
+public interface DeclarationSink {
+    void accept(ImportDeclaration dto) throws IOException;
+}
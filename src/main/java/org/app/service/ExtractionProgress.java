@@ -0,0 +1,64 @@
+package org.app.service;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Where an extraction run stands: files finished (parsed, failed or served
+ * from the cache) out of the total, with throughput and a naive ETA.
+ */
+public final class ExtractionProgress {
+    private final int done;
+    private final int total;
+    private final long elapsedNanos;
+
+    public ExtractionProgress(int done, int total, long elapsedNanos) {
+        this.done = done;
+        this.total = total;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int done() {
+        return done;
+    }
+
+    public int total() {
+        return total;
+    }
+
+    public long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    public double filesPerSecond() {
+        return elapsedNanos <= 0 ? 0 : done * 1e9 / elapsedNanos;
+    }
+
+    /** Time left at the throughput so far, or -1 before the first file. */
+    public long etaMillis() {
+        if (done == 0) {
+            return -1;
+        }
+        return Math.round((total - done) * (elapsedNanos / 1e6) / done);
+    }
+
+    /** "120/3400 · 14.2 files/s · ETA 3m 51s" */
+    public String describe() {
+        long eta = etaMillis();
+        return done + "/" + total
+                + String.format(Locale.ROOT, " · %.1f files/s", filesPerSecond())
+                + (eta < 0 ? "" : " · ETA " + formatDuration(eta));
+    }
+
+    private static String formatDuration(long millis) {
+        long seconds = TimeUnit.MILLISECONDS.toSeconds(millis + 999);
+        if (seconds < 60) {
+            return seconds + "s";
+        }
+        long minutes = seconds / 60;
+        if (minutes < 60) {
+            return minutes + "m " + String.format(Locale.ROOT, "%02ds", seconds % 60);
+        }
+        return minutes / 60 + "h " + String.format(Locale.ROOT, "%02dm", minutes % 60);
+    }
+}
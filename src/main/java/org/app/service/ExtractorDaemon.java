@@ -0,0 +1,233 @@
+package org.app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.app.helper.NativeExtractor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One long-lived extractor process running {@code extract.py --serve}.
+ * Commands go to its stdin, NDJSON records come back on stdout and are
+ * pumped into a queue by a reader thread, so waits can have deadlines.
+ * Not thread-safe: a daemon is used by one worker at a time via {@link ExtractorPool}.
+ */
+public class ExtractorDaemon implements Closeable {
+    private static final int MAX_DIAGNOSTIC_LINES = 50;
+    // marks the end of the process output in the queue
+    private static final String EOF = new String("<eof>");
+
+    private final Process proc;
+    private final BufferedWriter stdin;
+    private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+    private final Deque<String> diagnostics = new ArrayDeque<>();
+    private final ObjectReader recordReader;
+    private long lastUsed = System.nanoTime();
+
+    /**
+     * @param command     how to start the extractor ({@link NativeExtractor#command()})
+     * @param pageWorkers size of the daemon's page pool unless {@code idr.pageWorkers} is set
+     */
+    ExtractorDaemon(List<String> command, ObjectReader recordReader, int id, int pageWorkers) throws IOException {
+        this.recordReader = recordReader;
+        List<String> args = new ArrayList<>(command);
+        args.add("--serve");
+        ProcessBuilder pb = new ProcessBuilder(args);
+        pb.redirectErrorStream(true);
+        // a plain interpreter (script mode) might otherwise pick the locale's encoding
+        pb.environment().put("PYTHONIOENCODING", "utf-8");
+        // page-parallel extraction of large PDFs, see extract.py
+        passOn(pb, "idr.parallelMinPages", "IDR_PARALLEL_MIN_PAGES");
+        pb.environment().put("IDR_PAGE_WORKERS", String.valueOf(pageWorkers));
+        passOn(pb, "idr.pageWorkers", "IDR_PAGE_WORKERS");
+        if (TextLayerStore.ENABLED) {
+            pb.environment().put("IDR_TEXT_LAYER", TextLayerStore.FULL ? "full" : "1");
+        }
+        this.proc = pb.start();
+        this.stdin = new BufferedWriter(new OutputStreamWriter(proc.getOutputStream(), StandardCharsets.UTF_8));
+
+        Thread pump = new Thread(this::pump, "pdf-extractor-daemon-" + id);
+        pump.setDaemon(true);
+        pump.start();
+    }
+
+    private void pump() {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(proc.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException ignored) {
+            // the process went away, EOF below tells the waiting worker
+        } finally {
+            lines.add(EOF);
+        }
+    }
+
+    public boolean isAlive() {
+        return proc.isAlive();
+    }
+
+    /** Nanos since this daemon last answered a command. */
+    long idleNanos() {
+        return System.nanoTime() - lastUsed;
+    }
+
+    /**
+     * Health check: sends PING and waits for the pong. Any failure counts as unhealthy.
+     */
+    public boolean ping(long timeoutMillis) {
+        try {
+            send("PING");
+            JsonNode reply = awaitRecord(timeoutMillis);
+            return reply != null && reply.path("pong").asBoolean(false) && awaitDone(timeoutMillis);
+        } catch (IOException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Extracts one PDF and returns its record ({@code file} plus fields, or {@code error}).
+     *
+     * @param timeoutMillis deadline for the whole file, 0 for none
+     * @throws IOException when the process died, stopped answering or missed the deadline;
+     *                     the daemon is then mid-command and must be killed
+     */
+    public JsonNode extract(Path pdf, long timeoutMillis) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        send("FILE " + pdf.toAbsolutePath());
+        JsonNode record = awaitRecord(timeoutMillis);
+        boolean done = record != null && awaitDone(timeoutMillis <= 0 ? 0 : remainingMillis(deadline));
+        if (!done) {
+            if (timeoutMillis > 0 && proc.isAlive() && System.nanoTime() - deadline >= 0) {
+                throw new IOException("Timed out after " + TimeUnit.MILLISECONDS.toSeconds(timeoutMillis)
+                        + " s: " + pdf.getFileName());
+            }
+            throw new IOException("Extractor stopped while reading " + pdf.getFileName()
+                    + diagnosticsSuffix());
+        }
+        return record;
+    }
+
+    // at least 1, so 0 never turns into "wait forever"
+    private static long remainingMillis(long deadline) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    private void send(String command) throws IOException {
+        stdin.write(command);
+        stdin.newLine();
+        stdin.flush();
+    }
+
+    /** Next JSON object that isn't the done marker; null on EOF or timeout (0 = no timeout). */
+    private JsonNode awaitRecord(long timeoutMillis) throws InterruptedException {
+        JsonNode n = nextJson(timeoutMillis);
+        return n == null || n.has("done") ? null : n;
+    }
+
+    private boolean awaitDone(long timeoutMillis) throws InterruptedException {
+        JsonNode n = nextJson(timeoutMillis);
+        if (n != null && n.has("done")) {
+            lastUsed = System.nanoTime();
+            return true;
+        }
+        return false;
+    }
+
+    private JsonNode nextJson(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            String line;
+            if (timeoutMillis <= 0) {
+                line = lines.take();
+            } else {
+                line = lines.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+            if (line == null) {
+                return null;
+            }
+            if (line == EOF) {
+                // keep the marker for anyone asking again
+                lines.add(EOF);
+                return null;
+            }
+            JsonNode n = readRecord(line);
+            if (n != null) {
+                return n;
+            }
+            // stderr is merged into stdout, keep the tail for error reports
+            if (!line.isBlank()) {
+                if (diagnostics.size() == MAX_DIAGNOSTIC_LINES) {
+                    diagnostics.removeFirst();
+                }
+                diagnostics.addLast(line);
+            }
+        }
+    }
+
+    private JsonNode readRecord(String line) {
+        if (!line.startsWith("{")) {
+            return null;
+        }
+        try {
+            JsonNode n = recordReader.readTree(line);
+            return n.isObject() ? n : null;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private String diagnosticsSuffix() {
+        return diagnostics.isEmpty() ? "" : ":\n" + String.join("\n", diagnostics);
+    }
+
+    private static void passOn(ProcessBuilder pb, String property, String variable) {
+        String value = System.getProperty(property);
+        if (value != null && !value.isBlank()) {
+            pb.environment().put(variable, value.trim());
+        }
+    }
+
+    /** Stops the process right away, whatever it is doing, page workers included. */
+    public void kill() {
+        proc.descendants().forEach(ProcessHandle::destroyForcibly);
+        proc.destroyForcibly();
+    }
+
+    @Override
+    public void close() {
+        if (proc.isAlive()) {
+            try {
+                send("QUIT");
+                if (proc.waitFor(2, TimeUnit.SECONDS)) {
+                    return;
+                }
+            } catch (IOException ignored) {
+                // fall through to the hard stop
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        kill();
+    }
+}
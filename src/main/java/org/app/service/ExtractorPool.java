@@ -0,0 +1,197 @@
+package org.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.app.helper.NativeExtractor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Session-wide pool of {@link ExtractorDaemon}s. Daemons are started lazily,
+ * reused across runs, health-checked when they have been idle and restarted
+ * when they die, so only the first run pays for interpreter startup.
+ */
+public class ExtractorPool implements Closeable {
+    private static final int DEFAULT_SIZE =
+            Integer.getInteger("idr.workers", Runtime.getRuntime().availableProcessors());
+    private static final long PING_AFTER_IDLE_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long PING_TIMEOUT_MILLIS = 5_000;
+    // a onefile build unpacks itself before it answers the first time
+    private static final long PREWARM_TIMEOUT_MILLIS = 60_000;
+
+    private static ExtractorPool shared;
+
+    private final int size;
+    private final ObjectReader recordReader = new ObjectMapper().reader();
+    private final BlockingQueue<ExtractorDaemon> idle = new LinkedBlockingQueue<>();
+    private final List<ExtractorDaemon> all = new ArrayList<>();
+    // slots taken by daemons being started outside the lock
+    private int starting;
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicLong startupNanos = new AtomicLong();
+    private boolean closed;
+
+    public ExtractorPool(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("pool size must be >= 1, got " + size);
+        }
+        this.size = size;
+    }
+
+    /** The pool shared by the whole application session, stopped on JVM exit. */
+    public static synchronized ExtractorPool shared() {
+        if (shared == null) {
+            shared = new ExtractorPool(DEFAULT_SIZE);
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::close, "pdf-extractor-shutdown"));
+        }
+        return shared;
+    }
+
+    /** Stops the shared pool if this session started one; never starts it just to stop it. */
+    public static synchronized void closeShared() {
+        if (shared != null) {
+            shared.close();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Page workers per daemon for large PDFs: every daemon starts its own
+     * process pool, so together they get one per core, not one per core each.
+     */
+    int pageWorkers() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / size);
+    }
+
+    /** Time spent unpacking the extractor and spawning daemons so far. */
+    public long startupNanos() {
+        return startupNanos.get();
+    }
+
+    /**
+     * Takes an idle, healthy daemon, starting one if the pool isn't full yet,
+     * otherwise waits until another worker releases one.
+     */
+    public ExtractorDaemon acquire() throws IOException, InterruptedException {
+        while (true) {
+            ExtractorDaemon d = idle.poll();
+            if (d == null) {
+                d = startIfRoom();
+            }
+            if (d == null) {
+                synchronized (this) {
+                    if (closed) {
+                        throw new IOException("Extractor pool is closed");
+                    }
+                }
+                // poll, so a slot freed by a discarded daemon is noticed too
+                d = idle.poll(200, TimeUnit.MILLISECONDS);
+                if (d == null) {
+                    continue;
+                }
+            }
+            if (isHealthy(d)) {
+                return d;
+            }
+            // dead or not answering: replace it and try again
+            discard(d);
+        }
+    }
+
+    /**
+     * Starts a daemon (unpacking the extractor first if needed) and waits
+     * until it answers, so the first file finds a warm worker.
+     */
+    public void prewarm() throws IOException, InterruptedException {
+        ExtractorDaemon d = acquire();
+        if (!d.ping(PREWARM_TIMEOUT_MILLIS)) {
+            discard(d);
+            throw new IOException("The extractor did not answer within "
+                    + TimeUnit.MILLISECONDS.toSeconds(PREWARM_TIMEOUT_MILLIS) + " s");
+        }
+        release(d);
+    }
+
+    public void release(ExtractorDaemon d) {
+        synchronized (this) {
+            if (!closed && d.isAlive()) {
+                idle.add(d);
+                return;
+            }
+        }
+        discard(d);
+    }
+
+    private boolean isHealthy(ExtractorDaemon d) {
+        if (!d.isAlive()) {
+            return false;
+        }
+        return d.idleNanos() < PING_AFTER_IDLE_NANOS || d.ping(PING_TIMEOUT_MILLIS);
+    }
+
+    // reserves a slot under the lock, then unpacks and spawns outside it,
+    // so other workers' acquire/release don't wait for a process start
+    private ExtractorDaemon startIfRoom() throws IOException {
+        synchronized (this) {
+            if (closed || all.size() + starting >= size) {
+                return null;
+            }
+            starting++;
+        }
+        ExtractorDaemon d;
+        try {
+            long t0 = System.nanoTime();
+            d = new ExtractorDaemon(NativeExtractor.command(), recordReader, started.incrementAndGet(),
+                    pageWorkers());
+            startupNanos.addAndGet(System.nanoTime() - t0);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                starting--;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            starting--;
+            if (!closed) {
+                all.add(d);
+                return d;
+            }
+        }
+        // the pool was closed while this one started
+        d.close();
+        return null;
+    }
+
+    /** Kills a broken daemon; its slot is refilled by the next acquire. */
+    public void discard(ExtractorDaemon d) {
+        synchronized (this) {
+            all.remove(d);
+        }
+        d.close();
+    }
+
+    @Override
+    public void close() {
+        List<ExtractorDaemon> daemons;
+        synchronized (this) {
+            closed = true;
+            daemons = new ArrayList<>(all);
+            all.clear();
+            idle.clear();
+        }
+        for (ExtractorDaemon d : daemons) {
+            d.close();
+        }
+    }
+}
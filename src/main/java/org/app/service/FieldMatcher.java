@@ -0,0 +1,68 @@
+package org.app.service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single pass over a document's lines: every line is checked against the
+ * anchors of all undecided rules at once, and feeding stops as soon as every
+ * rule is decided. Text can be fed page by page. Not thread-safe.
+ */
+public final class FieldMatcher {
+    private final List<FieldRule> rules;
+    private final List<FieldRule> pending;
+    private final Map<String, String> data = new LinkedHashMap<>();
+    private final Map<FieldRule.Fold, String> folded = new EnumMap<>(FieldRule.Fold.class);
+
+    public FieldMatcher(List<FieldRule> rules) {
+        this.rules = rules;
+        this.pending = new ArrayList<>(rules);
+    }
+
+    /** Every rule has seen its first anchor line; more text can't change the result. */
+    public boolean isDone() {
+        return pending.isEmpty();
+    }
+
+    public FieldMatcher feed(String text) {
+        for (String raw : FieldRules.LINE_BREAKS.split(text, -1)) {
+            if (isDone()) {
+                break;
+            }
+            String line = FieldRules.pyStrip(raw);
+            if (line.isEmpty()) {
+                continue;
+            }
+            folded.clear();
+            for (Iterator<FieldRule> it = pending.iterator(); it.hasNext(); ) {
+                FieldRule rule = it.next();
+                String candidate = folded.computeIfAbsent(rule.fold(), f -> f.apply(line));
+                if (!rule.matches(candidate)) {
+                    continue;
+                }
+                it.remove();
+                String value = rule.valueOf(line);
+                if (value != null) {
+                    data.put(rule.field(), value);
+                }
+            }
+        }
+        return this;
+    }
+
+    /** Fields found so far, in rule order. */
+    public Map<String, String> fields() {
+        Map<String, String> ordered = new LinkedHashMap<>();
+        for (FieldRule rule : rules) {
+            String value = data.get(rule.field());
+            if (value != null) {
+                ordered.put(rule.field(), value);
+            }
+        }
+        return ordered;
+    }
+}
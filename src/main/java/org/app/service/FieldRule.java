@@ -0,0 +1,90 @@
+package org.app.service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One declarative field rule: the first line containing any anchor decides
+ * the field, {@code extract} is tried on that line and {@code fallback} when
+ * extract doesn't apply. Mirrors an entry of RULES in extract.py.
+ */
+public final class FieldRule {
+
+    /** How a line is compared against the anchors. */
+    public enum Fold {
+        NONE, UPPER, LOWER;
+
+        String apply(String line) {
+            switch (this) {
+                case UPPER:
+                    return line.toUpperCase(Locale.ROOT);
+                case LOWER:
+                    return line.toLowerCase(Locale.ROOT);
+                default:
+                    return line;
+            }
+        }
+    }
+
+    /** Pulls the value out of the deciding line, or returns null when it doesn't apply. */
+    public interface Extraction {
+        String apply(String line);
+
+        /** Group 1 of the first match. */
+        static Extraction regex(Pattern pattern) {
+            return line -> {
+                Matcher m = pattern.matcher(line);
+                return m.find() ? m.group(1) : null;
+            };
+        }
+
+        /** First word after the first {@code separator}; doesn't apply when it is missing. */
+        static Extraction after(char separator) {
+            return line -> {
+                int i = line.indexOf(separator);
+                return i < 0 ? null : FieldRules.firstToken(line.substring(i + 1));
+            };
+        }
+    }
+
+    private final String field;
+    private final List<String> anchors;
+    private final Fold fold;
+    private final Extraction extract;
+    private final Extraction fallback;
+
+    public FieldRule(String field, List<String> anchors, Fold fold, Extraction extract, Extraction fallback) {
+        this.field = field;
+        this.anchors = List.copyOf(anchors);
+        this.fold = fold;
+        this.extract = extract;
+        this.fallback = fallback;
+    }
+
+    public String field() {
+        return field;
+    }
+
+    public Fold fold() {
+        return fold;
+    }
+
+    boolean matches(String foldedLine) {
+        for (String anchor : anchors) {
+            if (foldedLine.contains(anchor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    String valueOf(String line) {
+        String value = extract.apply(line);
+        if (value == null && fallback != null) {
+            value = fallback.apply(line);
+        }
+        return value;
+    }
+}
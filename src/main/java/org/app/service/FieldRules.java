@@ -0,0 +1,93 @@
+package org.app.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * The declaration field rules, the Java twin of RULES in extract.py, with
+ * Python's Unicode-aware {@code \W} / {@code \b}, {@code str.strip()} and
+ * {@code str.splitlines()} behaviour. New layouts or fields are new table
+ * entries; {@link FieldMatcher} still reads each line once.
+ */
+public final class FieldRules {
+    /**
+     * Version of the field rules; cached results are keyed by it. Bump together
+     * with RULES_VERSION in extract.py whenever a rule changes on either side.
+     */
+    public static final int VERSION = 2;
+
+    public static final List<FieldRule> RULES = List.of(
+            new FieldRule("nrDestinatar", List.of("Importatorul - [13 04]"), FieldRule.Fold.NONE,
+                    regex("Nr\\W*([A-Z0-9]+)", 0), null),
+            // [A-Za-z]: Python's IGNORECASE also lower-cases the range, so İ and the Kelvin sign
+            // (lower case i and k) match there; Java's [A-Z] only tries their upper case
+            new FieldRule("mrn", List.of("MRN"), FieldRule.Fold.UPPER,
+                    regex("\\bMRN\\W*([A-Za-z0-9]+)", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE), null),
+            new FieldRule("referintaDocument", List.of("N822", "N821"), FieldRule.Fold.NONE,
+                    FieldRule.Extraction.after('/'), regex("N82[12]\\s*/\\s*(\\S+)", 0)),
+            new FieldRule("nrArticole", List.of("total articole"), FieldRule.Fold.LOWER,
+                    regex("total articole[^\\d]*(\\d+)", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE), null),
+            new FieldRule("nrContainer", List.of("Numărul de identificare al containerului"), FieldRule.Fold.NONE,
+                    FieldRule.Extraction.after(']'), regex("\\[19 07\\]\\s*([A-Z0-9\\-]+)", 0))
+    );
+
+    /** Every field the rules can fill. */
+    public static final List<String> FIELDS = RULES.stream().map(FieldRule::field).collect(Collectors.toList());
+
+    // every line break str.splitlines() knows about
+    static final Pattern LINE_BREAKS =
+            Pattern.compile("\r\n|[\n\r\\u000B\\u000C\\u001C\\u001D\\u001E\\u0085\\u2028\\u2029]");
+
+    private FieldRules() {
+    }
+
+    /**
+     * Applies the rules to a whole document's text and returns the fields
+     * found, in the same order extract.py emits them.
+     *
+     * @throws IllegalStateException where extract.py raises too (an anchor line with nothing after the separator)
+     */
+    public static Map<String, String> extract(String text) {
+        return newMatcher().feed(text).fields();
+    }
+
+    public static FieldMatcher newMatcher() {
+        return new FieldMatcher(RULES);
+    }
+
+    private static FieldRule.Extraction regex(String pattern, int flags) {
+        return FieldRule.Extraction.regex(Pattern.compile(pattern, Pattern.UNICODE_CHARACTER_CLASS | flags));
+    }
+
+    // Python's s.strip().split()[0]
+    static String firstToken(String s) {
+        String stripped = pyStrip(s);
+        if (stripped.isEmpty()) {
+            throw new IllegalStateException("list index out of range");
+        }
+        int end = 0;
+        while (end < stripped.length() && !isPyWhitespace(stripped.charAt(end))) {
+            end++;
+        }
+        return stripped.substring(0, end);
+    }
+
+    // str.strip(): unlike String.strip() this also drops no-break spaces and NEL
+    static String pyStrip(String s) {
+        int start = 0;
+        int end = s.length();
+        while (start < end && isPyWhitespace(s.charAt(start))) {
+            start++;
+        }
+        while (end > start && isPyWhitespace(s.charAt(end - 1))) {
+            end--;
+        }
+        return s.substring(start, end);
+    }
+
+    private static boolean isPyWhitespace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c) || c == '\u0085';
+    }
+}
@@ -0,0 +1,99 @@
+package org.app.service;
+
+import org.app.model.BillingMode;
+
+import java.nio.file.Path;
+
+/**
+ * One folder in the {@link JobQueue}: where it stands, how far it got and
+ * how it ended. Written by the job's thread, read by anyone.
+ */
+public final class FolderJob {
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == DONE || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final int id;
+    private final Path folder;
+    private final BillingMode mode;
+    private volatile Status status = Status.QUEUED;
+    private volatile ExtractionProgress progress;
+    private volatile String detail = "";
+    // set when the job starts, so cancel() reaches a running extraction
+    private volatile PdfFolderService service;
+
+    FolderJob(int id, Path folder, BillingMode mode) {
+        this.id = id;
+        this.folder = folder;
+        this.mode = mode;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public Path folder() {
+        return folder;
+    }
+
+    public BillingMode mode() {
+        return mode;
+    }
+
+    public Status status() {
+        return status;
+    }
+
+    /** Files done out of the folder's PDFs, or null before the first one. */
+    public ExtractionProgress progress() {
+        return progress;
+    }
+
+    /** Outcome once finished: the CSV written or what went wrong. */
+    public String detail() {
+        return detail;
+    }
+
+    /** "#3 2024-05 · RUNNING · 120/3400 · 14.2 files/s · ETA 3m 51s" */
+    public String describe() {
+        StringBuilder sb = new StringBuilder("#").append(id).append(' ').append(folder.getFileName())
+                .append(" · ").append(status);
+        ExtractionProgress p = progress;
+        if (status == Status.RUNNING && p != null) {
+            sb.append(" · ").append(p.describe());
+        }
+        if (!detail.isEmpty()) {
+            sb.append(" · ").append(detail);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return describe();
+    }
+
+    void setStatus(Status status) {
+        this.status = status;
+    }
+
+    void setProgress(ExtractionProgress progress) {
+        this.progress = progress;
+    }
+
+    void setDetail(String detail) {
+        this.detail = detail;
+    }
+
+    PdfFolderService service() {
+        return service;
+    }
+
+    void setService(PdfFolderService service) {
+        this.service = service;
+    }
+}
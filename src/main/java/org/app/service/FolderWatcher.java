@@ -0,0 +1,293 @@
+package org.app.service;
+
+import org.app.helper.NaturalOrder;
+import org.app.model.BillingMode;
+import org.app.model.ImportDeclaration;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Watch mode: keeps output.csv of a drop folder up to date as PDFs arrive,
+ * change or disappear. A PDF is only extracted once its size and timestamp
+ * have stayed the same for {@link #QUIET_MILLIS} and it can be opened, so
+ * half-copied files are skipped until they are complete. output.csv is
+ * rewritten in natural filename order after every batch, so nr.crt always
+ * matches what a one-off run of the folder would produce.
+ */
+public class FolderWatcher {
+    private static final long QUIET_MILLIS = Long.getLong("idr.watch.quietMillis", 2_000);
+    private static final long POLL_MILLIS = 500;
+
+    private final Path folder;
+    private final PdfFolderService service;
+    private final Supplier<BillingMode> mode;
+    private final Consumer<String> logger;
+
+    // current declarations by file name, in output.csv order
+    private final TreeMap<NaturalOrder.Key, ImportDeclaration> rows = new TreeMap<>();
+    // stamp each file had when it was last extracted
+    private final Map<Path, Stamp> processed = new HashMap<>();
+    // files seen changing, waiting to settle
+    private final Map<Path, Candidate> candidates = new HashMap<>();
+    private volatile WatchService watchService;
+    private volatile boolean stopped;
+
+    public FolderWatcher(Path folder, PdfFolderService service,
+                         Supplier<BillingMode> mode, Consumer<String> logger) {
+        this.folder = folder;
+        this.service = service;
+        this.mode = mode;
+        this.logger = logger;
+    }
+
+    /**
+     * Processes what is already in the folder, then follows changes until
+     * {@link #stop()} is called. Blocks the calling thread.
+     */
+    public void run() throws Exception {
+        try (WatchService ws = folder.getFileSystem().newWatchService()) {
+            watchService = ws;
+            if (stopped) {
+                return;
+            }
+            folder.register(ws,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            logger.accept("Watching folder: " + folder);
+
+            // 1) whatever is there already
+            rescan();
+
+            // 2) follow changes
+            while (!stopped) {
+                WatchKey key = ws.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    drain(key);
+                }
+                settle();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // stop() closed it
+        } finally {
+            logger.accept("Stopped watching: " + folder);
+        }
+    }
+
+    public void stop() {
+        stopped = true;
+        WatchService ws = watchService;
+        if (ws != null) {
+            try {
+                ws.close();
+            } catch (IOException ignored) {
+                // already closed
+            }
+        }
+    }
+
+    private void drain(WatchKey key) throws Exception {
+        boolean removed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // missed events: compare the whole folder against what we know
+                rescan();
+                continue;
+            }
+            Path file = folder.resolve((Path) event.context());
+            if (!isPdf(file)) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                candidates.remove(file);
+                processed.remove(file);
+                removed |= rows.remove(NaturalOrder.key(file.getFileName().toString())) != null;
+            } else {
+                candidates.putIfAbsent(file, new Candidate());
+            }
+        }
+        key.reset();
+        if (removed) {
+            writeCsv();
+        }
+    }
+
+    private void rescan() throws IOException {
+        List<Path> present = PdfFolderService.listPdfs(folder);
+        for (Path file : present) {
+            candidates.putIfAbsent(file, new Candidate());
+        }
+        boolean removed = false;
+        for (Iterator<Path> it = processed.keySet().iterator(); it.hasNext(); ) {
+            Path file = it.next();
+            if (!present.contains(file)) {
+                it.remove();
+                removed |= rows.remove(NaturalOrder.key(file.getFileName().toString())) != null;
+            }
+        }
+        if (removed) {
+            writeCsv();
+        }
+    }
+
+    /** Extracts the candidates that have settled. */
+    private void settle() throws Exception {
+        List<Path> ready = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<Path, Candidate>> it = candidates.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, Candidate> e = it.next();
+            Path file = e.getKey();
+            Stamp stamp = Stamp.of(file);
+            if (stamp == null) {
+                // gone again
+                it.remove();
+                continue;
+            }
+            if (stamp.equals(processed.get(file))) {
+                // a touch without a content change
+                it.remove();
+                continue;
+            }
+            Candidate c = e.getValue();
+            if (!stamp.equals(c.stamp)) {
+                c.stamp = stamp;
+                c.since = now;
+            }
+            if (now - c.since >= QUIET_MILLIS && canOpen(file)) {
+                it.remove();
+                ready.add(file);
+            }
+        }
+        if (ready.isEmpty()) {
+            return;
+        }
+
+        NaturalOrder.sort(ready, p -> p.getFileName().toString());
+        // stamps as extracted, so a change during the batch is picked up by the next one
+        Map<Path, Stamp> stamps = new HashMap<>();
+        for (Path file : ready) {
+            stamps.put(file, Stamp.of(file));
+        }
+        // a report per batch: the idle time between batches says nothing about speed
+        RunMetrics metrics = new RunMetrics();
+        service.setMetrics(metrics);
+        List<ImportDeclaration> parsed;
+        try {
+            parsed = service.processFiles(ready);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            // keep watching with the rows these files had; the next change to them retries them
+            logger.accept("Error processing new PDFs: " + e.getMessage());
+            return;
+        }
+
+        // only now replace the rows, so a failed batch never drops declarations from output.csv
+        for (Path file : ready) {
+            rows.remove(NaturalOrder.key(file.getFileName().toString()));
+            processed.put(file, stamps.get(file));
+        }
+        for (ImportDeclaration dto : parsed) {
+            rows.put(NaturalOrder.key(dto.getFile()), dto);
+        }
+        long t0 = System.nanoTime();
+        writeCsv();
+        metrics.stage("csv", System.nanoTime() - t0);
+        metrics.report(folder, logger);
+    }
+
+    /**
+     * output.csv goes through a temp file, so readers never see half a CSV.
+     * Rewritten whole after each batch, not streamed: a new file can sort
+     * between earlier ones, and nr.crt renumbers everything after it.
+     */
+    private void writeCsv() {
+        BillingMode m = mode.get();
+        if (m == null) {
+            logger.accept("Please select CU FIZIC or FARA FIZIC before proceeding.");
+            return;
+        }
+        Path out = folder.resolve("output.csv");
+        try (BillingCsvWriter csv = BillingCsvWriter.open(out, m)) {
+            for (ImportDeclaration dto : rows.values()) {
+                csv.accept(dto);
+            }
+            csv.commit();
+            logger.accept("CSV updated: " + out + " (" + rows.size() + " declarations)");
+        } catch (Exception e) {
+            // e.g. output.csv open in Excel on Windows; the next batch tries again
+            logger.accept("Error writing CSV: " + e.getMessage());
+        }
+    }
+
+    private static boolean isPdf(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".pdf");
+    }
+
+    private static boolean canOpen(Path file) {
+        try (FileChannel ignored = FileChannel.open(file, StandardOpenOption.READ)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static final class Candidate {
+        Stamp stamp;
+        long since;
+    }
+
+    private static final class Stamp {
+        final long size;
+        final long modified;
+
+        private Stamp(long size, long modified) {
+            this.size = size;
+            this.modified = modified;
+        }
+
+        static Stamp of(Path file) {
+            try {
+                BasicFileAttributes a = Files.readAttributes(file, BasicFileAttributes.class);
+                return a.isRegularFile() ? new Stamp(a.size(), a.lastModifiedTime().toMillis()) : null;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Stamp)) {
+                return false;
+            }
+            Stamp s = (Stamp) o;
+            return size == s.size && modified == s.modified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, modified);
+        }
+    }
+}
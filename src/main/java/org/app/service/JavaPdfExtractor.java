@@ -0,0 +1,251 @@
+package org.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-JVM extractor: reads the PDF text layer with PDFBox and applies
+ * {@link FieldRules}. No process, no second runtime, runs on any OS.
+ * At most {@link #parallelism()} files are read at once across all callers,
+ * the way the native pool caps its processes, however many runs share it.
+ */
+public class JavaPdfExtractor implements PdfExtractor {
+    private static final int DEFAULT_PARALLELISM =
+            Integer.getInteger("idr.workers", Runtime.getRuntime().availableProcessors());
+
+    private static JavaPdfExtractor shared;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final int parallelism;
+    private final long timeoutMillis;
+    private final boolean fullTextLayer;
+    // runs files with a deadline, so the caller can give up on them
+    private final ExecutorService timed;
+    private final Semaphore slots;
+
+    public JavaPdfExtractor(int parallelism, long timeoutMillis) {
+        this(parallelism, timeoutMillis, TextLayerStore.FULL);
+    }
+
+    /** @param fullTextLayer read every page for the text layer, see {@link TextLayerStore#FULL} */
+    JavaPdfExtractor(int parallelism, long timeoutMillis, boolean fullTextLayer) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be >= 1, got " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.timeoutMillis = timeoutMillis;
+        this.fullTextLayer = fullTextLayer;
+        this.slots = new Semaphore(parallelism, true);
+        AtomicInteger threadNo = new AtomicInteger();
+        this.timed = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "pdf-java-extractor-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static synchronized JavaPdfExtractor shared() {
+        if (shared == null) {
+            shared = new JavaPdfExtractor(DEFAULT_PARALLELISM, DEFAULT_FILE_TIMEOUT_MILLIS);
+        }
+        return shared;
+    }
+
+    @Override
+    public String name() {
+        return "in-JVM extractor";
+    }
+
+    @Override
+    public String cacheTag() {
+        return "java-" + FieldRules.VERSION;
+    }
+
+    @Override
+    public String textTag() {
+        return "pdfbox";
+    }
+
+    @Override
+    public int parallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public JsonNode extract(Path pdf) throws IOException, InterruptedException {
+        slots.acquire();
+        if (timeoutMillis <= 0) {
+            try {
+                return read(pdf);
+            } finally {
+                slots.release();
+            }
+        }
+        return readTimed(pdf);
+    }
+
+    // the slot goes back when the read really ends, not when the caller gives up on it,
+    // so a read past its deadline still counts against parallelism() until it stops
+    private JsonNode readTimed(Path pdf) throws IOException, InterruptedException {
+        AtomicBoolean started = new AtomicBoolean();
+        Future<JsonNode> f;
+        try {
+            f = timed.submit(() -> {
+                if (!started.compareAndSet(false, true)) {
+                    // the caller gave up before it ran, and released the slot
+                    return null;
+                }
+                try {
+                    return read(pdf);
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            throw new IOException("Extractor is closed", e);
+        }
+        try {
+            return f.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // PDFBox can't be stopped mid-page; the read gives up at the next page
+            giveUp(f, started);
+            throw new IOException("Timed out after " + TimeUnit.MILLISECONDS.toSeconds(timeoutMillis)
+                    + " s: " + pdf.getFileName());
+        } catch (InterruptedException e) {
+            giveUp(f, started);
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void giveUp(Future<JsonNode> f, AtomicBoolean started) {
+        f.cancel(true);
+        if (started.compareAndSet(false, true)) {
+            slots.release();
+        }
+    }
+
+    /** Reads a blank in-memory page, which loads PDFBox, its fonts and the field rules. */
+    @Override
+    public void prewarm() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PDDocument doc = new PDDocument()) {
+            doc.addPage(new PDPage());
+            doc.save(bytes);
+        }
+        try (PDDocument doc = Loader.loadPDF(bytes.toByteArray())) {
+            FieldRules.newMatcher().feed(new PDFTextStripper().getText(doc));
+        }
+    }
+
+    @Override
+    public void close() {
+        timed.shutdownNow();
+    }
+
+    /** @throws InterruptedException when interrupted mid-read; a cut-short read is no result */
+    private JsonNode read(Path pdf) throws InterruptedException {
+        // timings in ms, the same keys extract.py reports
+        long start = System.nanoTime();
+        long open = 0, text = 0, match = 0;
+        ObjectNode rec = mapper.createObjectNode();
+        try (PDDocument doc = Loader.loadPDF(pdf.toFile())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            // closest to pdfplumber's line layout
+            stripper.setSortByPosition(true);
+
+            // page by page, until every rule has seen its first anchor line;
+            // a full text layer (opt-in) reads the rest of the pages without matching them,
+            // and pages_read counts them: they cost the same layout time
+            int pagesTotal = doc.getNumberOfPages();
+            FieldMatcher matcher = FieldRules.newMatcher();
+            boolean fullLayer = TextLayerStore.ENABLED && fullTextLayer;
+            int pagesRead = 0;
+            ArrayNode layer = mapper.createArrayNode();
+            open = System.nanoTime() - start;
+            for (int page = 1; page <= pagesTotal && (fullLayer || !matcher.isDone()); page++) {
+                if (Thread.interrupted()) {
+                    throw stopped(pdf);
+                }
+                pagesRead++;
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                long t = System.nanoTime();
+                String pageText = stripper.getText(doc);
+                long tText = System.nanoTime();
+                text += tText - t;
+                if (TextLayerStore.ENABLED) {
+                    layer.add(pageText);
+                }
+                if (!matcher.isDone()) {
+                    matcher.feed(pageText);
+                    match += System.nanoTime() - tText;
+                }
+            }
+            for (Map.Entry<String, String> field : matcher.fields().entrySet()) {
+                rec.put(field.getKey(), field.getValue());
+            }
+            rec.put("file", pdf.getFileName().toString());
+            rec.put("pages_read", pagesRead);
+            rec.put("pages_total", pagesTotal);
+            if (TextLayerStore.ENABLED) {
+                rec.set("text", layer);
+            }
+        } catch (IOException | RuntimeException e) {
+            // PDFBox reports an interrupt as an I/O error (or just sets the flag)
+            if (e instanceof InterruptedIOException || e instanceof ClosedByInterruptException
+                    || Thread.interrupted()) {
+                throw stopped(pdf);
+            }
+            rec.removeAll();
+            rec.put("file", pdf.getFileName().toString());
+            rec.put("error", String.valueOf(e.getMessage()));
+        }
+        try {
+            rec.put("bytes", Files.size(pdf));
+        } catch (IOException ignored) {
+            // gone or unreadable: the error above says so
+        }
+        ObjectNode ms = rec.putObject("ms");
+        ms.put("open", millis(open));
+        ms.put("text", millis(text));
+        ms.put("match", millis(match));
+        ms.put("total", millis(System.nanoTime() - start));
+        return rec;
+    }
+
+    private static InterruptedException stopped(Path pdf) {
+        return new InterruptedException("Stopped reading " + pdf.getFileName());
+    }
+
+    // ms with one decimal, like extract.py
+    private static double millis(long nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+}
@@ -0,0 +1,209 @@
+package org.app.service;
+
+import org.app.model.BillingMode;
+import org.app.model.ImportDeclaration;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Folders waiting to be processed, in the order they will start. At most
+ * {@link #maxRunning()} run at once (-Didr.jobs, default 4), each with its
+ * own {@link PdfFolderService} and its own output.csv; they all extract
+ * through the session's backend, so the extractor processes stay capped at
+ * -Didr.workers in total however many folders run. Queued jobs can be moved
+ * and cancelled, running ones cancelled.
+ */
+public class JobQueue {
+    public static final int DEFAULT_MAX_RUNNING = Integer.getInteger("idr.jobs", 4);
+
+    private final int maxRunning;
+    private final Consumer<String> logger;
+    private final Function<Consumer<String>, PdfFolderService> services;
+    // every job not cleared yet, in start order
+    private final List<FolderJob> jobs = new ArrayList<>();
+    private volatile Runnable changeListener = () -> { };
+    private int running;
+    private int nextId = 1;
+
+    public JobQueue(int maxRunning, Consumer<String> logger) {
+        this(maxRunning, logger, PdfFolderService::new);
+    }
+
+    /** @param services makes a job's service from the job's logger */
+    public JobQueue(int maxRunning, Consumer<String> logger,
+                    Function<Consumer<String>, PdfFolderService> services) {
+        if (maxRunning < 1) {
+            throw new IllegalArgumentException("maxRunning must be >= 1, got " + maxRunning);
+        }
+        this.maxRunning = maxRunning;
+        this.logger = logger;
+        this.services = services;
+    }
+
+    /** Called from any thread after a job was added, moved, started, advanced or finished. */
+    public void setChangeListener(Runnable changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    public int maxRunning() {
+        return maxRunning;
+    }
+
+    /** Queues a folder; null when it is already queued or running. */
+    public FolderJob add(Path folder, BillingMode mode) {
+        Path normalized = folder.toAbsolutePath().normalize();
+        FolderJob job;
+        synchronized (this) {
+            for (FolderJob j : jobs) {
+                if (!j.status().isFinished() && j.folder().equals(normalized)) {
+                    return null;
+                }
+            }
+            job = new FolderJob(nextId++, normalized, mode);
+            jobs.add(job);
+        }
+        changed();
+        schedule();
+        return job;
+    }
+
+    /** Drops a queued job, or stops a running one; its CSV then lists what was parsed so far. */
+    public void cancel(FolderJob job) {
+        synchronized (this) {
+            if (job.status() == FolderJob.Status.QUEUED) {
+                job.setStatus(FolderJob.Status.CANCELLED);
+                job.setDetail("cancelled before it started");
+            } else if (job.status() == FolderJob.Status.RUNNING) {
+                job.service().cancel();
+            }
+        }
+        changed();
+    }
+
+    public void cancelAll() {
+        for (FolderJob job : jobs()) {
+            cancel(job);
+        }
+    }
+
+    /**
+     * Moves a queued job by delta places (negative is earlier); jobs start
+     * in list order. Returns false when the job isn't queued or can't move.
+     */
+    public boolean move(FolderJob job, int delta) {
+        synchronized (this) {
+            int from = jobs.indexOf(job);
+            int to = Math.max(0, Math.min(jobs.size() - 1, from + delta));
+            if (from < 0 || to == from || job.status() != FolderJob.Status.QUEUED) {
+                return false;
+            }
+            jobs.remove(from);
+            jobs.add(to, job);
+        }
+        changed();
+        return true;
+    }
+
+    /** Removes finished jobs from the list. */
+    public void clearFinished() {
+        synchronized (this) {
+            jobs.removeIf(j -> j.status().isFinished());
+        }
+        changed();
+    }
+
+    /** The jobs in start order. */
+    public synchronized List<FolderJob> jobs() {
+        return new ArrayList<>(jobs);
+    }
+
+    public synchronized int running() {
+        return running;
+    }
+
+    public synchronized int queued() {
+        return (int) jobs.stream().filter(j -> j.status() == FolderJob.Status.QUEUED).count();
+    }
+
+    // starts queued jobs, first in list order, while there is room
+    private void schedule() {
+        List<FolderJob> started = new ArrayList<>();
+        synchronized (this) {
+            for (FolderJob job : jobs) {
+                if (running >= maxRunning) {
+                    break;
+                }
+                if (job.status() == FolderJob.Status.QUEUED) {
+                    job.setStatus(FolderJob.Status.RUNNING);
+                    PdfFolderService svc = services.apply(logger(job));
+                    svc.setProgressListener(p -> {
+                        job.setProgress(p);
+                        changed();
+                    });
+                    job.setService(svc);
+                    running++;
+                    started.add(job);
+                }
+            }
+        }
+        for (FolderJob job : started) {
+            Thread t = new Thread(() -> run(job), "folder-job-" + job.id());
+            t.setDaemon(true);
+            t.start();
+        }
+        if (!started.isEmpty()) {
+            changed();
+        }
+    }
+
+    private void run(FolderJob job) {
+        Consumer<String> logger = logger(job);
+        PdfFolderService svc = job.service();
+        FolderJob.Status status;
+        String detail;
+        try {
+            // 1) extract; this folder's CSV rows are written as the declarations arrive, partial when cancelled
+            Path outFile = job.folder().resolve("output.csv");
+            List<ImportDeclaration> parsed;
+            try (BillingCsvWriter csv = BillingCsvWriter.open(outFile, job.mode())) {
+                parsed = svc.processFolder(job.folder().toFile(), csv);
+                csv.commit();
+            }
+            if (svc.isCancelled()) {
+                logger.accept("⚠ output.csv only lists the " + parsed.size() + " declarations parsed before cancelling");
+            }
+            logger.accept("CSV written to: " + outFile);
+            svc.getMetrics().report(job.folder(), logger);
+            status = svc.isCancelled() ? FolderJob.Status.CANCELLED : FolderJob.Status.DONE;
+            detail = parsed.size() + " parsed, " + outFile.getFileName() + " written";
+        } catch (Exception e) {
+            logger.accept("Fatal: " + e.getMessage());
+            status = FolderJob.Status.FAILED;
+            detail = String.valueOf(e.getMessage());
+        }
+
+        // 2) free the slot for the next queued job
+        synchronized (this) {
+            job.setStatus(status);
+            job.setDetail(detail);
+            job.setService(null);
+            running--;
+        }
+        changed();
+        schedule();
+    }
+
+    // concurrent jobs share the log, so each line says which folder it is about
+    private Consumer<String> logger(FolderJob job) {
+        String tag = "[" + job.folder().getFileName() + "] ";
+        return line -> logger.accept(tag + line);
+    }
+
+    private void changed() {
+        changeListener.run();
+    }
+}
@@ -0,0 +1,87 @@
+package org.app.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latencies in microsecond buckets, four per power of two (..., 8-10 µs,
+ * 10-12 µs, 12-14 µs, 14-16 µs, 16-20 µs, ... up to about half an hour), so a
+ * bucket is never more than 25% wide. Fixed size and lock-free, so worker
+ * threads can record into it for any number of files; percentiles are bucket
+ * upper bounds.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 120;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray stats = new AtomicLongArray(3); // count, sum, max (nanos)
+
+    public void record(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+        counts.incrementAndGet(bucket(micros));
+        stats.incrementAndGet(0);
+        stats.addAndGet(1, nanos);
+        long max;
+        while ((max = stats.get(2)) < nanos && !stats.compareAndSet(2, max, nanos)) {
+            // another thread raised it first; try again
+        }
+    }
+
+    public long count() {
+        return stats.get(0);
+    }
+
+    public double meanMillis() {
+        long n = count();
+        return n == 0 ? 0 : stats.get(1) / 1e6 / n;
+    }
+
+    public double maxMillis() {
+        return stats.get(2) / 1e6;
+    }
+
+    /** Upper bound (ms) of the bucket holding the q-th quantile, 0 < q <= 1. */
+    public double percentileMillis(double q) {
+        long n = count();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(q * n);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts.get(b);
+            if (seen >= rank) {
+                return Math.min(upperMicros(b) / 1e3, maxMillis());
+            }
+        }
+        return maxMillis();
+    }
+
+    /** Count per bucket, indexed like {@link #upperMicros(int)}. */
+    public long[] counts() {
+        long[] out = new long[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) {
+            out[b] = counts.get(b);
+        }
+        return out;
+    }
+
+    /** Exclusive upper bound of a bucket, in µs. */
+    public static long upperMicros(int bucket) {
+        if (bucket < 4) {
+            return bucket + 1;
+        }
+        int exp = bucket / 4 + 1;
+        return (5L + bucket % 4) << (exp - 2);
+    }
+
+    // 0-3 µs one bucket each; above that the power of two and the next two bits
+    private static int bucket(long micros) {
+        if (micros < 4) {
+            return (int) micros;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exp - 2)) & 3;
+        return Math.min(BUCKETS - 1, exp * 4 + sub - 4);
+    }
+}
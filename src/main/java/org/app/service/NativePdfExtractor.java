@@ -0,0 +1,78 @@
+package org.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The frozen extract.py, run as session daemons from an {@link ExtractorPool}.
+ */
+public class NativePdfExtractor implements PdfExtractor {
+    private static NativePdfExtractor shared;
+
+    private final ExtractorPool pool;
+    private final long timeoutMillis;
+
+    public NativePdfExtractor(ExtractorPool pool, long timeoutMillis) {
+        this.pool = pool;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static synchronized NativePdfExtractor shared() {
+        if (shared == null) {
+            shared = new NativePdfExtractor(ExtractorPool.shared(), DEFAULT_FILE_TIMEOUT_MILLIS);
+        }
+        return shared;
+    }
+
+    @Override
+    public String name() {
+        return "native extractor";
+    }
+
+    @Override
+    public String cacheTag() {
+        return "native-" + FieldRules.VERSION;
+    }
+
+    @Override
+    public String textTag() {
+        return "pdfplumber";
+    }
+
+    @Override
+    public int parallelism() {
+        return pool.size();
+    }
+
+    @Override
+    public long startupNanos() {
+        return pool.startupNanos();
+    }
+
+    @Override
+    public void prewarm() throws IOException, InterruptedException {
+        pool.prewarm();
+    }
+
+    @Override
+    public JsonNode extract(Path pdf) throws IOException, InterruptedException {
+        ExtractorDaemon daemon = pool.acquire();
+        try {
+            JsonNode record = daemon.extract(pdf, timeoutMillis);
+            pool.release(daemon);
+            return record;
+        } catch (IOException | InterruptedException e) {
+            // dead, stuck or cancelled mid-command: kill it, the next acquire starts a fresh one
+            daemon.kill();
+            pool.discard(daemon);
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
@@ -0,0 +1,78 @@
+package org.app.service;
+
+import org.app.helper.NaturalOrder;
+import org.app.model.ImportDeclaration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands the declarations of a run to a {@link DeclarationSink} in
+ * {@link PdfFolderService#FILE_ORDER} while the workers finish files in any
+ * order: a declaration waits here until every file before it is done. A
+ * file that didn't parse only frees its place. Called from the workers;
+ * the sink is only ever called by one of them at a time.
+ */
+final class OrderedRelease {
+    // a finished file without a declaration
+    private static final Object SKIPPED = new Object();
+
+    private final DeclarationSink sink;
+    private final Map<Path, Integer> positions = new HashMap<>();
+    private final Object[] finished;
+    private int next;
+    private long sinkNanos;
+
+    OrderedRelease(List<Path> pdfs, DeclarationSink sink) {
+        this.sink = sink;
+        List<Path> ordered = new ArrayList<>(pdfs);
+        NaturalOrder.sort(ordered, p -> p.getFileName().toString());
+        for (int i = 0; i < ordered.size(); i++) {
+            positions.put(ordered.get(i), i);
+        }
+        this.finished = new Object[ordered.size()];
+    }
+
+    /**
+     * Books a finished file and releases what it was holding back.
+     *
+     * @param dto its declaration, null when it didn't parse
+     */
+    synchronized void finished(Path pdf, ImportDeclaration dto) throws IOException {
+        Integer position = positions.get(pdf);
+        if (position == null) {
+            return;
+        }
+        finished[position] = dto == null ? SKIPPED : dto;
+        while (next < finished.length && finished[next] != null) {
+            release(next++);
+        }
+    }
+
+    /** After a cancelled run: releases the held-back declarations, past the files that never finished. */
+    synchronized void drain() throws IOException {
+        while (next < finished.length) {
+            release(next++);
+        }
+    }
+
+    /** Time spent in the sink so far. */
+    synchronized long sinkNanos() {
+        return sinkNanos;
+    }
+
+    private void release(int position) throws IOException {
+        Object item = finished[position];
+        // released ones are no longer needed here
+        finished[position] = SKIPPED;
+        if (item instanceof ImportDeclaration) {
+            long t0 = System.nanoTime();
+            sink.accept((ImportDeclaration) item);
+            sinkNanos += System.nanoTime() - t0;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.app.helper.NativeExtractor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A backend that turns one PDF into an extractor record: {@code file} plus
+ * the declaration fields, or {@code file} plus {@code error}. Implementations
+ * are thread-safe; {@link PdfFolderService} calls them from its worker threads.
+ */
+public interface PdfExtractor extends Closeable {
+    /** Per-file deadline, -Didr.fileTimeoutSeconds (0 = none); a file past it becomes an error. */
+    long DEFAULT_FILE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(Long.getLong("idr.fileTimeoutSeconds", 120));
+
+    /** Short name for logs. */
+    String name();
+
+    /** Identifies the text layer and rule set; cached results are keyed by it. */
+    String cacheTag();
+
+    /**
+     * Identifies the text engine for {@link TextLayerStore}, or null when
+     * records carry no {@code text}. Unlike the cache tag it ignores the rules.
+     */
+    default String textTag() {
+        return null;
+    }
+
+    /** How many files this backend can usefully extract at once. */
+    int parallelism();
+
+    /**
+     * Extracts one PDF. Problems with the PDF itself come back as an
+     * {@code error} record. Interrupting the caller stops the extraction.
+     *
+     * @throws IOException when the backend itself failed or the file missed its
+     *                     deadline; the result must not be cached
+     */
+    JsonNode extract(Path pdf) throws IOException, InterruptedException;
+
+    /** Time this backend has spent starting up (unpacking, spawning processes) so far. */
+    default long startupNanos() {
+        return 0;
+    }
+
+    /**
+     * Gets the backend ready for the first file (unpacking, a running worker,
+     * loaded classes), so the first run doesn't wait for it. Optional.
+     */
+    default void prewarm() throws IOException, InterruptedException {
+    }
+
+    @Override
+    default void close() {
+    }
+
+    /**
+     * The backend for this session: -Didr.extractor=native|java, otherwise the
+     * native extractor where this build bundles one and the in-JVM engine elsewhere.
+     */
+    static PdfExtractor shared() {
+        String choice = System.getProperty("idr.extractor", "").trim().toLowerCase(Locale.ROOT);
+        switch (choice) {
+            case "native":
+                return NativePdfExtractor.shared();
+            case "java":
+                return JavaPdfExtractor.shared();
+            case "":
+                return NativeExtractor.isAvailable() ? NativePdfExtractor.shared() : JavaPdfExtractor.shared();
+            default:
+                throw new IllegalArgumentException("Unknown extractor backend: " + choice
+                        + " (expected native or java)");
+        }
+    }
+}
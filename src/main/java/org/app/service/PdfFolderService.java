@@ -3,140 +3,502 @@ package org.app.service;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.app.helper.NativeExtractor;
+import org.app.helper.Hashing;
+import org.app.helper.NaturalOrder;
 import org.app.model.ImportDeclaration;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.AbstractMap;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class PdfFolderService {
     private static final Log log = LogFactory.getLog(PdfFolderService.class);
+    /**
+     * Natural, case-insensitive filename order of output.csv. The raw name breaks
+     * ties ("a01" vs "a1"), so the order never depends on which worker finished first.
+     */
+    public static final Comparator<String> FILE_ORDER = NaturalOrder.ORDER;
+    private static final DateTimeFormatter RUN_ID = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
     private final ObjectMapper mapper;
     private final Consumer<String> logger;
+    private final PdfExtractor extractor;
+    private final ResultCache cache;
+    private final TextLayerStore textLayers;
+    private final DeclarationIndex index;
+    private final List<Run> active = new CopyOnWriteArrayList<>();
+    private volatile Consumer<ExtractionProgress> progressListener = p -> { };
+    private volatile boolean cancelled;
+    private volatile boolean rematchOnly;
+    private volatile RunMetrics metrics = new RunMetrics();
 
     public PdfFolderService(Consumer<String> logger) {
+        this(logger, PdfExtractor.shared(), ResultCache.shared(), TextLayerStore.shared(), DeclarationIndex.shared());
+    }
+
+    /** Without a text-layer store or a declaration index. */
+    public PdfFolderService(Consumer<String> logger, PdfExtractor extractor, ResultCache cache) {
+        this(logger, extractor, cache, null, null);
+    }
+
+    /**
+     * @param textLayers where page texts are kept for re-matching; null for none
+     * @param index      where parsed declarations are recorded and checked for duplicates; null for none
+     */
+    public PdfFolderService(Consumer<String> logger, PdfExtractor extractor, ResultCache cache,
+                            TextLayerStore textLayers, DeclarationIndex index) {
         this.logger = logger;
+        this.extractor = extractor;
+        this.cache = cache;
+        this.textLayers = textLayers;
+        this.index = index;
         this.mapper = new ObjectMapper()
-                // ignore the “file” or “error” fields when binding to ImportDeclaration
+                // ignore the “error” and page-count fields when binding to ImportDeclaration
                 .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
     }
 
+    /** Called from the worker threads after every file. */
+    public void setProgressListener(Consumer<ExtractionProgress> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Stops the running extraction: no new files are started and the ones in
+     * flight are abandoned (their extractor processes are killed). The run
+     * returns what it parsed so far. A cancelled service stays cancelled.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Run run : active) {
+            run.workers.shutdownNow();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Re-match mode: files the result cache doesn't know are matched against
+     * their stored text layer only; a file without a usable one fails instead
+     * of being extracted. No PDF is opened beyond hashing it.
+     */
+    public void setRematchOnly(boolean rematchOnly) {
+        this.rematchOnly = rematchOnly;
+    }
+
+    /** Timings of the runs since the last {@link #setMetrics(RunMetrics)}. */
+    public RunMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Starts recording into a fresh set of metrics (watch mode does this per batch). */
+    public void setMetrics(RunMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public List<ImportDeclaration> processFolder(File folder) throws Exception {
-        // 1) run the extractor
-        Path extractor = NativeExtractor.unpackExtractor();
-        ProcessBuilder pb = new ProcessBuilder(
-                extractor.toAbsolutePath().toString(),
-                folder.getAbsolutePath()
-        );
-        pb.redirectErrorStream(true);
-        Process proc = pb.start();
-
-        // 2) collect its stdout
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        try (InputStream is = proc.getInputStream()) {
-            byte[] buf = new byte[4096];
-            int r;
-            while ((r = is.read(buf)) != -1) {
-                out.write(buf, 0, r);
-            }
+        return processFolder(folder, null);
+    }
+
+    /** Like {@link #processFiles(List, DeclarationSink)} for the PDFs of a folder. */
+    public List<ImportDeclaration> processFolder(File folder, DeclarationSink sink) throws Exception {
+        // 1) list the PDFs; workers pull from a shared queue, so a slow file doesn't hold up a shard
+        long t0 = System.nanoTime();
+        List<Path> pdfs = listPdfs(folder.toPath());
+        metrics.stage("list", System.nanoTime() - t0);
+        if (pdfs.isEmpty()) {
+            logger.accept("No PDF files found in: " + folder);
+            return new ArrayList<>();
+        }
+        List<ImportDeclaration> good = processFiles(pdfs, sink);
+        logger.accept("Total PDFs parsed: " + good.size());
+        return good;
+    }
+
+    /**
+     * Extracts the given PDFs and returns the ones that parsed, in {@link #FILE_ORDER}.
+     * Failures are only logged.
+     */
+    public List<ImportDeclaration> processFiles(List<Path> pdfs) throws Exception {
+        return processFiles(pdfs, null);
+    }
+
+    /**
+     * Like {@link #processFiles(List)}, and hands each declaration to the sink
+     * as soon as every file before it in {@link #FILE_ORDER} is done, so rows
+     * are written while the run goes on. A sink failure fails the run. A
+     * cancelled run still hands over every declaration it parsed.
+     *
+     * @param sink null for none
+     */
+    public List<ImportDeclaration> processFiles(List<Path> pdfs, DeclarationSink sink) throws Exception {
+        if (pdfs.isEmpty() || cancelled) {
+            return new ArrayList<>();
         }
-        int exit = proc.waitFor();
-        String json = out.toString(StandardCharsets.UTF_8);
-        if (exit != 0) {
-            throw new RuntimeException("Extractor failed:\n" + json);
+        Queue<Path> pending = new ConcurrentLinkedQueue<>(pdfs);
+        int workerCount = Math.min(extractor.parallelism(), pdfs.size());
+        if (rematchOnly) {
+            logger.accept("Re-matching " + pdfs.size() + " PDFs from their stored text with "
+                    + workerCount + " worker(s)");
+        } else {
+            logger.accept("Extracting " + pdfs.size() + " PDFs with "
+                    + workerCount + " worker(s), " + extractor.name());
         }
 
-        // 3) parse into a JSON treee
-        JsonNode root = mapper.readTree(json);
-        if (! (root instanceof ArrayNode) ) {
-            throw new RuntimeException("Unexpected extractor output (not a JSON array):\n" + json);
+        // 2) each worker answers from the result cache and sends only the misses to the extractor
+        long startup = extractor.startupNanos();
+        AtomicInteger threadNo = new AtomicInteger();
+        Run run = new Run(pdfs.size(), Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "pdf-extractor-worker-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }), sink == null ? null : new OrderedRelease(pdfs, sink));
+        active.add(run);
+        try {
+            if (cancelled) {
+                // cancel() came before this run was registered
+                run.workers.shutdownNow();
+                return new ArrayList<>();
+            }
+            List<Future<Void>> futures = new ArrayList<>(workerCount);
+            for (int i = 0; i < workerCount; i++) {
+                futures.add(run.workers.submit(() -> {
+                    runWorker(pending, run);
+                    return null;
+                }));
+            }
+            for (Future<Void> f : futures) {
+                try {
+                    f.get();
+                } catch (CancellationException e) {
+                    // never started, cancel() got there first
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            active.remove(run);
+            run.workers.shutdownNow();
+            metrics.stage(RunMetrics.EXTRACT, System.nanoTime() - run.started);
+            if (extractor.startupNanos() > startup) {
+                metrics.stage("extractor startup", extractor.startupNanos() - startup);
+            }
+            long t0 = System.nanoTime();
+            saveCache();
+            saveIndex();
+            metrics.stage("cache save", System.nanoTime() - t0);
+        }
+        if (run.release != null) {
+            // only a cancelled run has declarations left waiting for files that never finished
+            run.release.drain();
+            metrics.stage("csv", run.release.sinkNanos());
+        }
+        if (cancelled) {
+            logger.accept("⚠ Cancelled: " + run.done + " of " + pdfs.size() + " PDFs processed");
+        }
+        logger.accept("Result cache: " + run.hits + " hit(s), " + run.misses + " miss(es)"
+                + (run.rematched.get() > 0 ? ", " + run.rematched + " re-matched from stored text" : ""));
+        if (run.duplicates.get() > 0) {
+            logger.accept("⚠ " + run.duplicates + " possible duplicate(s) of earlier declarations, see above");
         }
 
-        List<String> expected = List.of(
-                "nrDestinatar","mrn","nrArticole",
-                "referintaDocument","nrContainer"
-        );
+        // 3) natural filename order for the CSV
+        long t0 = System.nanoTime();
+        List<ImportDeclaration> good = new ArrayList<>(run.rows);
+        NaturalOrder.sort(good, ImportDeclaration::getFile);
+        metrics.stage("sort", System.nanoTime() - t0);
+        return good;
+    }
 
-        List<Map.Entry<String, ImportDeclaration>> rows = new ArrayList<>();
+    public static List<Path> listPdfs(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files
+                    .filter(Files::isRegularFile)
+                    .filter(p -> p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".pdf"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
 
-        ArrayNode arr = (ArrayNode) root;
-        for (JsonNode n : arr) {
-            String fileName = n.path("file").asText("<unknown>");
+    /** The folder itself and its direct subfolders, the ones that hold PDFs. */
+    public static List<Path> foldersWithPdfs(Path root) throws IOException {
+        List<Path> candidates = new ArrayList<>();
+        candidates.add(root);
+        try (Stream<Path> children = Files.list(root)) {
+            candidates.addAll(children.filter(Files::isDirectory).sorted().collect(Collectors.toList()));
+        }
+        List<Path> folders = new ArrayList<>();
+        for (Path folder : candidates) {
+            if (!listPdfs(folder).isEmpty()) {
+                folders.add(folder);
+            }
+        }
+        return folders;
+    }
 
-            if (n.has("error")) {
-                logger.accept("❌ Failed to parse: "
-                        + fileName
-                        + " → " + n.get("error").asText());
+    private void runWorker(Queue<Path> pending, Run run) throws Exception {
+        Path pdf;
+        while (!cancelled && (pdf = pending.poll()) != null) {
+            String fileName = pdf.getFileName().toString();
+            long t0 = System.nanoTime();
+            String sha256 = sha256(pdf);
+            String key = sha256 == null ? null : ResultCache.key(sha256, extractor.cacheTag());
+            JsonNode n = key == null ? null : cache.get(key, fileName);
+            long t1 = System.nanoTime();
+            if (n != null) {
+                run.hits.incrementAndGet();
+                recordFile(pdf, n, true, t1 - t0, 0, run);
+                fileDone(run);
                 continue;
             }
+            run.misses.incrementAndGet();
 
-            // check if *any* expected field is non-blank
-            boolean hasData = expected.stream()
-                    .anyMatch(field ->
-                            n.hasNonNull(field)
-                                    && !n.get(field).asText().isBlank()
-                    );
-
-            if (!hasData) {
-                logger.accept("❌ Wrong structure: " + fileName);
+            // the rules changed (or the entry was evicted): the stored text is enough, mostly
+            n = rematch(pdf, sha256);
+            if (n != null) {
+                run.rematched.incrementAndGet();
+                cache.put(key, n);
+                recordFile(pdf, n, false, t1 - t0, System.nanoTime() - t1, run);
+                fileDone(run);
                 continue;
             }
-
-            // otherwise bind and record it
-            ImportDeclaration dto = mapper.treeToValue(n, ImportDeclaration.class);
-            rows.add(new AbstractMap.SimpleEntry<>(fileName, dto));
+            if (rematchOnly) {
+                n = mapper.createObjectNode()
+                        .put("file", fileName)
+                        .put("error", "No stored text layer covers the current rules (re-match only)");
+                recordFile(pdf, n, false, t1 - t0, System.nanoTime() - t1, run);
+                fileDone(run);
+                continue;
+            }
+            try {
+                n = extractor.extract(pdf);
+                if (cancelled) {
+                    // finished while cancelling: maybe cut short, so neither cached nor counted
+                    return;
+                }
+                storeTextLayer(sha256, n);
+                if (key != null) {
+                    cache.put(key, n);
+                }
+            } catch (InterruptedException e) {
+                if (cancelled) {
+                    return;
+                }
+                throw e;
+            } catch (IOException e) {
+                if (cancelled) {
+                    // the failure is the cancellation itself
+                    return;
+                }
+                // the backend failed on this file (or it timed out): report it (uncached) and carry on
+                n = mapper.createObjectNode()
+                        .put("file", fileName)
+                        .put("error", e.getMessage());
+            }
+            recordFile(pdf, n, false, t1 - t0, System.nanoTime() - t1, run);
+            fileDone(run);
         }
+    }
 
-        rows.sort((a, b) -> naturalCompareIgnoreCase(a.getKey(), b.getKey()));
+    // binds the record, then books the file's timings: hashing/cache lookup, extraction (wall) and binding
+    private void recordFile(Path pdf, JsonNode n, boolean cached, long hashNanos, long extractNanos, Run run)
+            throws IOException {
+        long t0 = System.nanoTime();
+        String status = handleRecord(n, pdf, run);
+        long bindNanos = System.nanoTime() - t0;
+        metrics.file(new RunMetrics.FileMetrics(n.path("file").asText("<unknown>"), status, cached, n,
+                hashNanos, extractNanos, bindNanos));
+    }
 
-        List<ImportDeclaration> good = new ArrayList<>(rows.size());
-        for (var e : rows) {
-            logger.accept("✅ Parsed successfully: " + e.getKey());
-            good.add(e.getValue());
+    private void fileDone(Run run) {
+        // one at a time, so listeners never see the count go backwards
+        synchronized (run) {
+            int done = run.done.incrementAndGet();
+            progressListener.accept(new ExtractionProgress(done, run.total, System.nanoTime() - run.started));
         }
-        logger.accept("Total PDFs parsed: " + good.size());
-        return good;
     }
 
-    private static int naturalCompareIgnoreCase(String a, String b) {
-        int ia = 0, ib = 0, na = a.length(), nb = b.length();
-        while (ia < na && ib < nb) {
-            char ca = Character.toLowerCase(a.charAt(ia));
-            char cb = Character.toLowerCase(b.charAt(ib));
+    private static String sha256(Path pdf) {
+        try {
+            return Hashing.sha256(pdf);
+        } catch (IOException e) {
+            // unreadable here; let the extractor report it
+            return null;
+        }
+    }
 
-            // if both chunks are digits, compare as integers
-            if (Character.isDigit(ca) && Character.isDigit(cb)) {
-                int ja = ia; while (ja < na && Character.isDigit(a.charAt(ja))) ja++;
-                int jb = ib; while (jb < nb && Character.isDigit(b.charAt(jb))) jb++;
-                String da = a.substring(ia, ja);
-                String db = b.substring(ib, jb);
+    // the record from the stored text layer, or null when there is none or it falls short
+    private ObjectNode rematch(Path pdf, String sha256) {
+        String engine = extractor.textTag();
+        if (textLayers == null || sha256 == null || engine == null) {
+            return null;
+        }
+        TextLayerStore.TextLayer layer = textLayers.get(sha256, engine);
+        if (layer == null) {
+            return null;
+        }
+        ObjectNode rec = TextLayerStore.rematch(layer, mapper);
+        if (rec == null) {
+            return null;
+        }
+        rec.put("file", pdf.getFileName().toString());
+        try {
+            rec.put("bytes", Files.size(pdf));
+        } catch (IOException ignored) {
+            // only the report misses it
+        }
+        return rec;
+    }
 
-                // strip leading zeros for fair numeric compare
-                String da2 = da.replaceFirst("^0+(?!$)", "");
-                String db2 = db.replaceFirst("^0+(?!$)", "");
-                int cmp = Integer.compare(da2.length(), db2.length());
-                if (cmp == 0) cmp = da2.compareTo(db2);
-                if (cmp != 0) return cmp;
+    // moves the page texts out of the record into the store; records are cached and bound without them
+    private void storeTextLayer(String sha256, JsonNode n) {
+        if (!(n instanceof ObjectNode) || !n.has("text")) {
+            return;
+        }
+        TextLayerStore.TextLayer layer = TextLayerStore.TextLayer.of(n);
+        ((ObjectNode) n).remove("text");
+        String engine = extractor.textTag();
+        if (textLayers == null || layer == null || sha256 == null || engine == null) {
+            return;
+        }
+        try {
+            textLayers.put(sha256, engine, layer);
+        } catch (IOException e) {
+            logger.accept("⚠ Could not store the text layer of "
+                    + n.path("file").asText("<unknown>") + ": " + e.getMessage());
+        }
+    }
 
-                ia = ja; ib = jb; // numbers equal → move on
-                continue;
+    private void saveIndex() {
+        if (index == null) {
+            return;
+        }
+        try {
+            index.flush();
+        } catch (IOException e) {
+            logger.accept("⚠ Could not save the declaration index: " + e.getMessage());
+        }
+    }
+
+    // records the row in the index and flags earlier declarations from other PDFs it repeats
+    private void indexRow(ImportDeclaration dto, Path pdf, Run run) {
+        if (index == null) {
+            return;
+        }
+        try {
+            for (DeclarationIndex.Duplicate d : index.add(dto, pdf, run.id)) {
+                run.duplicates.incrementAndGet();
+                logger.accept("⚠ Possible duplicate: " + dto.getFile() + " → " + d.describe());
             }
+        } catch (IOException e) {
+            logger.accept("⚠ Declaration index unavailable: " + e.getMessage());
+        }
+    }
+
+    private void saveCache() {
+        try {
+            cache.save();
+        } catch (IOException e) {
+            logger.accept("⚠ Could not save the result cache: " + e.getMessage());
+        }
+    }
+
+    // logs the outcome and returns it: ok, failed or wrong structure
+    private String handleRecord(JsonNode n, Path pdf, Run run)
+            throws IOException {
+        String fileName = n.path("file").asText("<unknown>");
+
+        if (n.has("error")) {
+            logger.accept("❌ Failed to parse: "
+                    + fileName
+                    + " → " + n.get("error").asText());
+            run.finished(pdf, null);
+            return "failed";
+        }
+
+        // check if *any* expected field is non-blank
+        boolean hasData = FieldRules.FIELDS.stream()
+                .anyMatch(field ->
+                        n.hasNonNull(field)
+                                && !n.get(field).asText().isBlank()
+                );
 
-            // otherwise compare chars (case-insensitive)
-            if (ca != cb) return ca - cb;
-            ia++; ib++;
+        if (!hasData) {
+            logger.accept("❌ Wrong structure: " + fileName);
+            run.finished(pdf, null);
+            return "wrong structure";
+        }
+
+        // otherwise bind and record it
+        ImportDeclaration dto = mapper.treeToValue(n, ImportDeclaration.class);
+        dto.setFile(fileName);
+        run.rows.add(dto);
+        logger.accept("✅ Parsed successfully: " + fileName + pagesSuffix(n));
+        indexRow(dto, pdf, run);
+        run.finished(pdf, dto);
+        return "ok";
+    }
+
+    // " (2/40 pages)" when the extractor reported how far it had to read
+    private static String pagesSuffix(JsonNode n) {
+        if (!n.hasNonNull("pages_read") || !n.hasNonNull("pages_total")) {
+            return "";
+        }
+        return " (" + n.get("pages_read").asInt() + "/" + n.get("pages_total").asInt() + " pages)";
+    }
+
+    /** State shared by the workers of one processFolder call. */
+    private static final class Run {
+        final List<ImportDeclaration> rows = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger hits = new AtomicInteger();
+        final AtomicInteger misses = new AtomicInteger();
+        final AtomicInteger rematched = new AtomicInteger();
+        final AtomicInteger duplicates = new AtomicInteger();
+        // names the run in the declaration index
+        final String id = LocalDateTime.now().format(RUN_ID);
+        final AtomicInteger done = new AtomicInteger();
+        final long started = System.nanoTime();
+        final int total;
+        final ExecutorService workers;
+        // feeds the caller's sink in file order, null without one
+        final OrderedRelease release;
+
+        Run(int total, ExecutorService workers, OrderedRelease release) {
+            this.total = total;
+            this.workers = workers;
+            this.release = release;
+        }
+
+        void finished(Path pdf, ImportDeclaration dto) throws IOException {
+            if (release != null) {
+                release.finished(pdf, dto);
+            }
         }
-        return (na - ia) - (nb - ib);
     }
 }
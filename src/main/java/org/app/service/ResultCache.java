@@ -0,0 +1,146 @@
+package org.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.app.helper.AppDirs;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Persistent extractor results keyed by PDF content hash plus the extractor's
+ * cache tag (backend and rule version). Entries are the extractor records
+ * without their {@code file} name and timings, so a renamed or copied PDF is
+ * still a hit.
+ * Kept in LRU order, bounded by entry count, and stored as NDJSON (least
+ * recently used first) so a reload keeps the order.
+ */
+public class ResultCache {
+    private static final int DEFAULT_MAX_ENTRIES = Integer.getInteger("idr.resultcache.max", 50_000);
+
+    private static ResultCache shared;
+
+    private final Path file;
+    private final int maxEntries;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LinkedHashMap<String, ObjectNode> entries;
+    private boolean loaded;
+    private boolean dirty;
+
+    public ResultCache(Path file, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be >= 1, got " + maxEntries);
+        }
+        this.file = file;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ObjectNode> eldest) {
+                return size() > ResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static synchronized ResultCache shared() {
+        if (shared == null) {
+            shared = new ResultCache(AppDirs.cacheDir().resolve("results").resolve("results.ndjson"),
+                    DEFAULT_MAX_ENTRIES);
+        }
+        return shared;
+    }
+
+    public static String key(String sha256, String cacheTag) {
+        return sha256 + ":" + cacheTag;
+    }
+
+    /** A copy of the cached record with {@code file} set, or null on a miss. */
+    public synchronized ObjectNode get(String key, String fileName) throws IOException {
+        load();
+        ObjectNode cached = entries.get(key);
+        if (cached == null) {
+            return null;
+        }
+        ObjectNode copy = cached.deepCopy();
+        copy.put("file", fileName);
+        return copy;
+    }
+
+    public synchronized void put(String key, JsonNode record) throws IOException {
+        load();
+        ObjectNode copy = ((ObjectNode) record).deepCopy();
+        // per-file, per-run values: a hit reports no extraction time
+        copy.remove("file");
+        copy.remove("ms");
+        entries.put(key, copy);
+        dirty = true;
+    }
+
+    public synchronized int size() throws IOException {
+        load();
+        return entries.size();
+    }
+
+    /** Writes the cache if it changed, through a temp file so a crash never leaves half a cache. */
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        Path part = Files.createTempFile(file.getParent(), "results-", ".part");
+        try {
+            try (BufferedWriter w = Files.newBufferedWriter(part, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, ObjectNode> e : entries.entrySet()) {
+                    ObjectNode line = mapper.createObjectNode();
+                    line.put("key", e.getKey());
+                    line.set("record", e.getValue());
+                    w.write(mapper.writeValueAsString(line));
+                    w.newLine();
+                }
+            }
+            try {
+                Files.move(part, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(part, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            dirty = false;
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    private void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    JsonNode n = mapper.readTree(line);
+                    if (n.path("key").isTextual() && n.path("record").isObject()) {
+                        entries.put(n.get("key").asText(), (ObjectNode) n.get("record"));
+                    }
+                } catch (IOException e) {
+                    // a damaged line only costs a re-extraction
+                    dirty = true;
+                }
+            }
+        }
+    }
+}
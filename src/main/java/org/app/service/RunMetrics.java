@@ -0,0 +1,305 @@
+package org.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.opencsv.CSVWriter;
+import org.app.helper.NaturalOrder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Where the time of one run went: wall time per stage (listing, extraction,
+ * sorting, CSV, extractor startup), per-file timings and sizes, and latency
+ * histograms. Worker threads record into it concurrently; at the end the
+ * run writes performance.json and performance.csv next to output.csv and
+ * logs {@link #summary()}.
+ */
+public class RunMetrics {
+    public static final String HASH = "hash";
+    public static final String EXTRACT = "extract";
+    public static final String BIND = "bind";
+
+    private static final int SLOWEST = 10;
+
+    private final Instant started = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final Map<String, long[]> stages = new LinkedHashMap<>(); // name -> {nanos, count}
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+    private final Map<String, FileMetrics> files = new ConcurrentHashMap<>();
+
+    public RunMetrics() {
+        histograms.put(HASH, new LatencyHistogram());
+        histograms.put(EXTRACT, new LatencyHistogram());
+        histograms.put(BIND, new LatencyHistogram());
+    }
+
+    /** Adds wall time to a stage; stages show up in the order first seen. */
+    public synchronized void stage(String name, long nanos) {
+        long[] s = stages.computeIfAbsent(name, k -> new long[2]);
+        s[0] += nanos;
+        s[1]++;
+    }
+
+    public synchronized long stageNanos(String name) {
+        long[] s = stages.get(name);
+        return s == null ? 0 : s[0];
+    }
+
+    /** Timings of one file; recording it again (watch mode) replaces the old entry. */
+    public void file(FileMetrics f) {
+        files.put(f.file, f);
+        histograms.get(HASH).record(f.hashNanos);
+        if (!f.cached) {
+            histograms.get(EXTRACT).record(f.extractNanos);
+        }
+        histograms.get(BIND).record(f.bindNanos);
+    }
+
+    public List<FileMetrics> files() {
+        List<FileMetrics> list = new ArrayList<>(files.values());
+        NaturalOrder.sort(list, f -> f.file);
+        return list;
+    }
+
+    /** A few lines for the log. */
+    public String summary() {
+        List<FileMetrics> all = files();
+        long failed = all.stream().filter(f -> !"ok".equals(f.status)).count();
+        long cached = all.stream().filter(f -> f.cached).count();
+        double extractSeconds = stageNanos(EXTRACT) / 1e9;
+        LatencyHistogram extract = histograms.get(EXTRACT);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("⏱ ").append(all.size()).append(" PDFs in ").append(duration(extractSeconds * 1e3));
+        if (extractSeconds > 0) {
+            sb.append(String.format(Locale.ROOT, " (%.1f files/s)", all.size() / extractSeconds));
+        }
+        sb.append(", ").append(cached).append(" from cache, ").append(failed).append(" not parsed");
+        if (extract.count() > 0) {
+            sb.append("\n⏱ extraction per file: p50 ").append(duration(extract.percentileMillis(0.5)))
+                    .append(" · p90 ").append(duration(extract.percentileMillis(0.9)))
+                    .append(" · p99 ").append(duration(extract.percentileMillis(0.99)))
+                    .append(" · max ").append(duration(extract.maxMillis()));
+        }
+        synchronized (this) {
+            if (!stages.isEmpty()) {
+                sb.append("\n⏱ stages: ").append(stages.entrySet().stream()
+                        .map(e -> e.getKey() + " " + duration(e.getValue()[0] / 1e6))
+                        .collect(Collectors.joining(" · ")));
+            }
+        }
+        List<FileMetrics> slowest = slowest(3);
+        if (!slowest.isEmpty()) {
+            sb.append("\n⏱ slowest: ").append(slowest.stream()
+                    .map(f -> f.file + " " + duration(f.extractNanos / 1e6))
+                    .collect(Collectors.joining(", ")));
+        }
+        return sb.toString();
+    }
+
+    /** Writes the report into the folder and logs the summary; a failed write is only logged. */
+    public void report(Path folder, Consumer<String> logger) {
+        try {
+            writeReport(folder);
+        } catch (IOException e) {
+            logger.accept("⚠ Could not write the performance report: " + e.getMessage());
+        }
+        // line by line, so each one gets the caller's prefix
+        summary().lines().forEach(logger);
+    }
+
+    /**
+     * Writes performance.json (totals, stages, histograms, slowest files and
+     * every file) and performance.csv (one row per file) into the folder.
+     */
+    public void writeReport(Path folder) throws IOException {
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        writeAtomically(folder.resolve("performance.json"),
+                part -> mapper.writeValue(part.toFile(), toJson(mapper)));
+        writeAtomically(folder.resolve("performance.csv"), part -> {
+            try (CSVWriter w = new CSVWriter(Files.newBufferedWriter(part, StandardCharsets.UTF_8))) {
+                w.writeNext(new String[]{"file", "status", "cached", "bytes", "pages_read", "pages_total",
+                        "hash_ms", "extract_ms", "extractor_ms", "open_ms", "text_ms", "match_ms", "bind_ms", "error"});
+                for (FileMetrics f : files()) {
+                    w.writeNext(new String[]{f.file, f.status, String.valueOf(f.cached), number(f.bytes),
+                            number(f.pagesRead), number(f.pagesTotal), msText(f.hashNanos), f.cached ? "" : msText(f.extractNanos),
+                            decimal(f.extractorMs.get("total")), decimal(f.extractorMs.get("open")),
+                            decimal(f.extractorMs.get("text")), decimal(f.extractorMs.get("match")),
+                            msText(f.bindNanos), f.error == null ? "" : f.error});
+                }
+            }
+        });
+    }
+
+    ObjectNode toJson(ObjectMapper mapper) {
+        List<FileMetrics> all = files();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("started", started.toString());
+        root.put("wall_ms", ms(System.nanoTime() - startNanos));
+        root.put("files", all.size());
+        root.put("ok", all.stream().filter(f -> "ok".equals(f.status)).count());
+        root.put("cached", all.stream().filter(f -> f.cached).count());
+        root.put("bytes", all.stream().mapToLong(f -> Math.max(0, f.bytes)).sum());
+        root.put("pages_read", all.stream().mapToLong(f -> Math.max(0, f.pagesRead)).sum());
+
+        ObjectNode stageNode = root.putObject("stages");
+        synchronized (this) {
+            for (Map.Entry<String, long[]> e : stages.entrySet()) {
+                stageNode.putObject(e.getKey())
+                        .put("ms", ms(e.getValue()[0]))
+                        .put("count", e.getValue()[1]);
+            }
+        }
+
+        ObjectNode histNode = root.putObject("histograms");
+        for (Map.Entry<String, LatencyHistogram> e : histograms.entrySet()) {
+            LatencyHistogram h = e.getValue();
+            ObjectNode n = histNode.putObject(e.getKey());
+            n.put("count", h.count());
+            n.put("mean_ms", round(h.meanMillis()));
+            n.put("p50_ms", round(h.percentileMillis(0.5)));
+            n.put("p90_ms", round(h.percentileMillis(0.9)));
+            n.put("p99_ms", round(h.percentileMillis(0.99)));
+            n.put("max_ms", round(h.maxMillis()));
+            ArrayNode buckets = n.putArray("buckets");
+            long[] counts = h.counts();
+            for (int b = 0; b < counts.length; b++) {
+                if (counts[b] > 0) {
+                    buckets.addObject()
+                            .put("below_ms", LatencyHistogram.upperMicros(b) / 1e3)
+                            .put("count", counts[b]);
+                }
+            }
+        }
+
+        ArrayNode slow = root.putArray("slowest");
+        for (FileMetrics f : slowest(SLOWEST)) {
+            slow.addObject().put("file", f.file).put("extract_ms", ms(f.extractNanos));
+        }
+        ArrayNode fileNodes = root.putArray("per_file");
+        for (FileMetrics f : all) {
+            ObjectNode n = fileNodes.addObject();
+            n.put("file", f.file);
+            n.put("status", f.status);
+            n.put("cached", f.cached);
+            n.put("bytes", f.bytes);
+            n.put("pages_read", f.pagesRead);
+            n.put("pages_total", f.pagesTotal);
+            n.put("hash_ms", ms(f.hashNanos));
+            if (!f.cached) {
+                n.put("extract_ms", ms(f.extractNanos));
+            }
+            n.put("bind_ms", ms(f.bindNanos));
+            ObjectNode ex = n.putObject("extractor_ms");
+            f.extractorMs.forEach(ex::put);
+            if (f.error != null) {
+                n.put("error", f.error);
+            }
+        }
+        return root;
+    }
+
+    private List<FileMetrics> slowest(int n) {
+        return files.values().stream()
+                .filter(f -> !f.cached)
+                .sorted(Comparator.comparingLong((FileMetrics f) -> f.extractNanos).reversed())
+                .limit(n)
+                .collect(Collectors.toList());
+    }
+
+    private interface Writer {
+        void write(Path part) throws IOException;
+    }
+
+    // through a temp file, like output.csv, so a reader never sees half a report
+    private static void writeAtomically(Path target, Writer writer) throws IOException {
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        try {
+            writer.write(part);
+            try {
+                Files.move(part, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    private static double ms(long nanos) {
+        return round(nanos / 1e6);
+    }
+
+    private static String msText(long nanos) {
+        return String.valueOf(ms(nanos));
+    }
+
+    private static double round(double millis) {
+        return Math.round(millis * 10) / 10.0;
+    }
+
+    private static String number(long n) {
+        return n < 0 ? "" : String.valueOf(n);
+    }
+
+    private static String decimal(Double d) {
+        return d == null ? "" : String.valueOf(d);
+    }
+
+    private static String duration(double millis) {
+        if (millis < 1_000) {
+            return Math.round(millis) + " ms";
+        }
+        return String.format(Locale.ROOT, "%.1f s", millis / 1_000);
+    }
+
+    /** One file of a run. Sizes and page counts are -1 when unknown. */
+    public static final class FileMetrics {
+        final String file;
+        final String status;
+        final boolean cached;
+        final long bytes;
+        final long pagesRead;
+        final long pagesTotal;
+        final long hashNanos;
+        final long extractNanos;
+        final long bindNanos;
+        final Map<String, Double> extractorMs;
+        final String error;
+
+        FileMetrics(String file, String status, boolean cached, JsonNode record,
+                    long hashNanos, long extractNanos, long bindNanos) {
+            this.file = file;
+            this.status = status;
+            this.cached = cached;
+            this.bytes = record.path("bytes").asLong(-1);
+            this.pagesRead = record.path("pages_read").asLong(-1);
+            this.pagesTotal = record.path("pages_total").asLong(-1);
+            this.hashNanos = hashNanos;
+            this.extractNanos = extractNanos;
+            this.bindNanos = bindNanos;
+            Map<String, Double> ms = new LinkedHashMap<>();
+            record.path("ms").fields().forEachRemaining(e -> ms.put(e.getKey(), e.getValue().asDouble()));
+            this.extractorMs = ms;
+            this.error = record.hasNonNull("error") ? record.get("error").asText() : null;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.app.helper.AppDirs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The page texts an extractor read from a PDF, kept per PDF content hash and
+ * text engine (pdfplumber or PDFBox), so a rule change re-matches the stored
+ * text instead of extracting the archive again. One gzipped JSON file per
+ * PDF, written through a temp file; -Didr.textlayers.dir moves the store.
+ *
+ * <p>A layer holds the pages the extraction read: the extractors stop once
+ * every rule has seen its anchor, so it is often only the first pages, and
+ * only rule changes those pages can answer re-match, see {@link #rematch};
+ * the rest is extracted again. -Didr.textlayers.full=true stores every page
+ * instead, so any rule change re-matches, at the price of laying out every
+ * page of every PDF.
+ */
+public class TextLayerStore {
+    /** -Didr.textlayers=false: extractors send no page texts and nothing is stored. */
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("idr.textlayers", "true"));
+    /** -Didr.textlayers.full=true: extractors read every page for the layer, not just the ones the rules need. */
+    public static final boolean FULL = Boolean.parseBoolean(System.getProperty("idr.textlayers.full", "false"));
+
+    // bump when the file layout changes
+    private static final String VERSION = "v1";
+
+    private static TextLayerStore shared;
+
+    private final Path root;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public TextLayerStore(Path root) {
+        this.root = root;
+    }
+
+    public static synchronized TextLayerStore shared() {
+        if (shared == null) {
+            String override = System.getProperty("idr.textlayers.dir");
+            Path dir = override != null && !override.isBlank()
+                    ? Path.of(override)
+                    : AppDirs.cacheDir().resolve("textlayers");
+            shared = new TextLayerStore(dir.resolve(VERSION));
+        }
+        return shared;
+    }
+
+    /** The stored layer, or null when there is none (or it is unreadable). */
+    public TextLayer get(String sha256, String engine) {
+        Path file = file(sha256, engine);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            JsonNode n = mapper.readTree(in);
+            List<String> pages = new ArrayList<>();
+            for (JsonNode page : n.path("pages")) {
+                pages.add(page.asText());
+            }
+            return new TextLayer(pages, n.path("pages_total").asInt(), n.path("complete").asBoolean());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // damaged: the next extraction writes it again
+            return null;
+        }
+    }
+
+    public void put(String sha256, String engine, TextLayer layer) throws IOException {
+        Path file = file(sha256, engine);
+        Files.createDirectories(file.getParent());
+        Path part = Files.createTempFile(file.getParent(), sha256 + "-", ".part");
+        try {
+            ObjectNode n = mapper.createObjectNode();
+            n.put("pages_total", layer.pagesTotal());
+            n.put("complete", layer.complete());
+            ArrayNode pages = n.putArray("pages");
+            layer.pages().forEach(pages::add);
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(part))) {
+                mapper.writeValue(out, n);
+            }
+            try {
+                Files.move(part, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(part, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    // two hex digits of fan-out keep directories small on large archives
+    private Path file(String sha256, String engine) {
+        return root.resolve(engine).resolve(sha256.substring(0, 2)).resolve(sha256 + ".json.gz");
+    }
+
+    /**
+     * Applies the current {@link FieldRules} to a stored layer the way the
+     * extractors read a PDF: page by page until every rule has matched.
+     * Returns an extractor record without {@code file}, or null when the
+     * stored pages ran out before the rules were done and the PDF has more.
+     * A complete layer never returns null, whatever the rules; a partial one
+     * (the default) answers when the current rules are done within its pages,
+     * e.g. a changed value pattern on an anchor they already reach.
+     */
+    public static ObjectNode rematch(TextLayer layer, ObjectMapper mapper) {
+        long start = System.nanoTime();
+        ObjectNode rec = mapper.createObjectNode();
+        try {
+            FieldMatcher matcher = FieldRules.newMatcher();
+            int pagesRead = 0;
+            for (String page : layer.pages()) {
+                if (matcher.isDone()) {
+                    break;
+                }
+                pagesRead++;
+                matcher.feed(page);
+            }
+            if (!matcher.isDone() && !layer.complete()) {
+                return null;
+            }
+            for (Map.Entry<String, String> field : matcher.fields().entrySet()) {
+                rec.put(field.getKey(), field.getValue());
+            }
+            rec.put("pages_read", pagesRead);
+            rec.put("pages_total", layer.pagesTotal());
+        } catch (RuntimeException e) {
+            // the same rule failure extract.py reports as an error record
+            rec.removeAll();
+            rec.put("error", String.valueOf(e.getMessage()));
+        }
+        double millis = Math.round((System.nanoTime() - start) / 100_000.0) / 10.0;
+        rec.putObject("ms").put("match", millis).put("total", millis);
+        return rec;
+    }
+
+    /**
+     * Page texts from the start of a PDF. Complete when they cover every page,
+     * so no rule could need more.
+     */
+    public static final class TextLayer {
+        private final List<String> pages;
+        private final int pagesTotal;
+        private final boolean complete;
+
+        public TextLayer(List<String> pages, int pagesTotal, boolean complete) {
+            this.pages = Collections.unmodifiableList(pages);
+            this.pagesTotal = pagesTotal;
+            this.complete = complete;
+        }
+
+        /** The layer an extractor record carries in {@code text}, or null if it has none. */
+        public static TextLayer of(JsonNode record) {
+            if (!record.path("text").isArray() || !record.hasNonNull("pages_total")) {
+                return null;
+            }
+            List<String> pages = new ArrayList<>();
+            for (JsonNode page : record.get("text")) {
+                pages.add(page.asText());
+            }
+            int pagesTotal = record.get("pages_total").asInt();
+            return new TextLayer(pages, pagesTotal, pages.size() >= pagesTotal);
+        }
+
+        public List<String> pages() {
+            return pages;
+        }
+
+        public int pagesTotal() {
+            return pagesTotal;
+        }
+
+        public boolean complete() {
+            return complete;
+        }
+    }
+}
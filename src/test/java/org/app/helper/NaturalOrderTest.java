@@ -0,0 +1,198 @@
+package org.app.helper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * NaturalOrder against the comparator it replaced (PdfFolderService's
+ * naturalCompareIgnoreCase, kept below as {@link #legacyCompare}): the same
+ * sign for every pair of generated names, for compare(), ORDER and Key.
+ */
+class NaturalOrderTest {
+    /** The order output.csv had before NaturalOrder: natural order, then the raw name. */
+    private static final Comparator<String> LEGACY_ORDER =
+            ((Comparator<String>) NaturalOrderTest::legacyCompare).thenComparing(Comparator.naturalOrder());
+
+    // digits with and without leading zeros, case pairs, separators, and a few non-ASCII corners
+    private static final String[] PARTS = {
+            "0", "00", "1", "01", "007", "7", "9", "10", "99", "100", "2147483648", "9223372036854775808",
+            "123456789012345678901234567890", "a", "A", "b", "B", "z", "decl", "DECL", "-", "_", ".", " ",
+            ".pdf", ".PDF", "ă", "Ă", "ß", "٣", "٠٧", "１２", "İ", "📄"
+    };
+
+    @ParameterizedTest
+    @CsvSource({
+            // leading zeros: the same number, the raw name decides
+            "file007.pdf, file7.pdf",
+            "a01, a1",
+            "0, 00",
+            "x0010y, x10y",
+            // case: the same name, the raw name decides (upper case first)
+            "A1.pdf, a1.pdf",
+            "DECL2, decl2",
+            // numbers by value, however many digits
+            "decl2.pdf, decl10.pdf",
+            "x99999999999999999999, x123456789012345678901234567890",
+            "n9223372036854775807, n9223372036854775808",
+            "n0009223372036854775808, n9223372036854775809",
+            // a number against a letter by its first digit
+            "1a, a",
+            "a1, ab",
+            // prefix first
+            "decl, decl1",
+            "decl1, decl1a"
+    })
+    void ordersLikeTheLegacyComparator(String first, String second) {
+        assertTrue(LEGACY_ORDER.compare(first, second) < 0, "legacy order itself");
+        assertTrue(NaturalOrder.ORDER.compare(first, second) < 0);
+        assertTrue(NaturalOrder.ORDER.compare(second, first) > 0);
+        assertTrue(NaturalOrder.key(first).compareTo(NaturalOrder.key(second)) < 0);
+        assertTrue(NaturalOrder.key(second).compareTo(NaturalOrder.key(first)) > 0);
+    }
+
+    @Test
+    void leadingZerosAndCaseOnlyTieInNaturalOrder() {
+        assertEquals(0, NaturalOrder.compare("File007", "file7"));
+        assertEquals(0, NaturalOrder.compare("0", "000"));
+        assertTrue(NaturalOrder.ORDER.compare("File007", "file7") != 0);
+    }
+
+    @Test
+    void sameSignAsLegacyOnGeneratedPairs() {
+        Random random = new Random(15);
+        for (int i = 0; i < 200_000; i++) {
+            String a = name(random);
+            String b = random.nextInt(4) == 0 ? mutate(a, random) : name(random);
+
+            int legacy = Integer.signum(legacyCompare(a, b));
+            assertEquals(legacy, Integer.signum(NaturalOrder.compare(a, b)), () -> pair(a, b));
+
+            int legacyOrder = Integer.signum(LEGACY_ORDER.compare(a, b));
+            assertEquals(legacyOrder, Integer.signum(NaturalOrder.ORDER.compare(a, b)), () -> pair(a, b));
+            assertEquals(legacyOrder, Integer.signum(NaturalOrder.key(a).compareTo(NaturalOrder.key(b))),
+                    () -> pair(a, b));
+        }
+    }
+
+    @Test
+    void keysAreConsistentWithEquals() {
+        Random random = new Random(16);
+        for (int i = 0; i < 50_000; i++) {
+            String a = name(random);
+            String b = mutate(a, random);
+            NaturalOrder.Key ka = NaturalOrder.key(a);
+            NaturalOrder.Key kb = NaturalOrder.key(b);
+
+            assertEquals(a.equals(b), ka.compareTo(kb) == 0, () -> pair(a, b));
+            assertEquals(a.equals(b), ka.equals(kb), () -> pair(a, b));
+            assertEquals(Integer.signum(ka.compareTo(kb)), -Integer.signum(kb.compareTo(ka)), () -> pair(a, b));
+        }
+    }
+
+    @Test
+    void sortAndTreeMapMatchLegacySort() {
+        // ASCII names: there the legacy order is a total order, so the sorted list is unique
+        String[] ascii = {"0", "00", "01", "1", "7", "007", "10", "99", "123456789012345678901234567890",
+                "a", "A", "b", "B", "decl", "DECL", "-", "_", ".pdf", ".PDF"};
+        Random random = new Random(17);
+        for (int round = 0; round < 200; round++) {
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                StringBuilder sb = new StringBuilder();
+                for (int p = 1 + random.nextInt(5); p > 0; p--) {
+                    sb.append(ascii[random.nextInt(ascii.length)]);
+                }
+                names.add(sb.toString());
+            }
+            List<String> expected = new ArrayList<>(names);
+            expected.sort(LEGACY_ORDER);
+
+            List<String> sorted = new ArrayList<>(names);
+            NaturalOrder.sort(sorted, s -> s);
+            assertEquals(expected, sorted);
+
+            TreeMap<NaturalOrder.Key, String> map = new TreeMap<>();
+            for (String name : names) {
+                map.put(NaturalOrder.key(name), name);
+            }
+            assertEquals(expected.stream().distinct().collect(Collectors.toList()),
+                    new ArrayList<>(map.values()));
+        }
+    }
+
+    private static String name(Random random) {
+        StringBuilder sb = new StringBuilder();
+        for (int p = random.nextInt(6); p > 0; p--) {
+            sb.append(PARTS[random.nextInt(PARTS.length)]);
+        }
+        return sb.toString();
+    }
+
+    // a near miss: one part's case flipped, a zero added or a digit changed
+    private static String mutate(String s, Random random) {
+        if (s.isEmpty()) {
+            return "0";
+        }
+        int i = random.nextInt(s.length());
+        char c = s.charAt(i);
+        switch (random.nextInt(3)) {
+            case 0:
+                char flipped = Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c);
+                return s.substring(0, i) + flipped + s.substring(i + 1);
+            case 1:
+                return s.substring(0, i) + '0' + s.substring(i);
+            default:
+                if (!Character.isDigit(c)) {
+                    return s;
+                }
+                return s.substring(0, i) + (char) ('0' + random.nextInt(10)) + s.substring(i + 1);
+        }
+    }
+
+    private static String pair(String a, String b) {
+        return "\"" + a + "\" vs \"" + b + "\"";
+    }
+
+    // PdfFolderService.naturalCompareIgnoreCase before NaturalOrder, unchanged
+    private static int legacyCompare(String a, String b) {
+        int ia = 0, ib = 0, na = a.length(), nb = b.length();
+        while (ia < na && ib < nb) {
+            char ca = Character.toLowerCase(a.charAt(ia));
+            char cb = Character.toLowerCase(b.charAt(ib));
+
+            // if both chunks are digits, compare as integers
+            if (Character.isDigit(ca) && Character.isDigit(cb)) {
+                int ja = ia; while (ja < na && Character.isDigit(a.charAt(ja))) ja++;
+                int jb = ib; while (jb < nb && Character.isDigit(b.charAt(jb))) jb++;
+                String da = a.substring(ia, ja);
+                String db = b.substring(ib, jb);
+
+                // strip leading zeros for fair numeric compare
+                String da2 = da.replaceFirst("^0+(?!$)", "");
+                String db2 = db.replaceFirst("^0+(?!$)", "");
+                int cmp = Integer.compare(da2.length(), db2.length());
+                if (cmp == 0) cmp = da2.compareTo(db2);
+                if (cmp != 0) return cmp;
+
+                ia = ja; ib = jb; // numbers equal → move on
+                continue;
+            }
+
+            // otherwise compare chars (case-insensitive)
+            if (ca != cb) return ca - cb;
+            ia++; ib++;
+        }
+        return (na - ia) - (nb - ib);
+    }
+}
@@ -0,0 +1,122 @@
+package org.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.app.model.BillingMode;
+import org.app.model.ImportDeclaration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The template-driven billing CSV against the bytes the hard-coded
+ * writeCsvCuFizic/writeCsvFaraFizic wrote for the same declarations: the
+ * billing/expected-*.csv and billing/invalid-*.csv files were produced by
+ * that code (ASCII data, so its platform charset doesn't matter). They cover
+ * the OTP/CT note prefixes, the CT prefix on the MRN note chosen from
+ * referintaDocument, the additional-HS-code row from two articles up,
+ * nr.crt past 9, CSV quoting and a missing container.
+ */
+class BillingCsvWriterTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @ParameterizedTest
+    @EnumSource(BillingMode.class)
+    void writesTheBytesOfTheOldWriter(BillingMode mode, @TempDir Path dir) throws IOException {
+        Path out = dir.resolve("output.csv");
+        try (BillingCsvWriter w = new BillingCsvWriter(out, mode, BillingTemplate.loadDefault())) {
+            for (ImportDeclaration dto : declarations("declarations.json")) {
+                w.accept(dto);
+            }
+            assertEquals(11, w.count());
+        }
+        assertArrayEquals(golden("expected-" + mode + ".csv"), Files.readAllBytes(out));
+    }
+
+    @ParameterizedTest
+    @EnumSource(BillingMode.class)
+    void nonNumericArticoleFailsAfterTheSameRows(BillingMode mode, @TempDir Path dir) throws IOException {
+        Path out = dir.resolve("output.csv");
+        List<ImportDeclaration> list = declarations("invalid.json");
+        try (BillingCsvWriter w = new BillingCsvWriter(out, mode, BillingTemplate.loadDefault())) {
+            w.accept(list.get(0));
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> w.accept(list.get(1)));
+            assertEquals("Invalid nrArticole '3 articole' in decl2.pdf", e.getMessage());
+        }
+        // the old writer stopped at the first row that needed the count, with the rows before it written
+        assertArrayEquals(golden("invalid-" + mode + ".csv"), Files.readAllBytes(out));
+    }
+
+    @Test
+    void writeTakesAWholeList(@TempDir Path dir) throws IOException {
+        Path out = dir.resolve("output.csv");
+        BillingCsvWriter.write(out, declarations("declarations.json"), BillingMode.CU_FIZIC);
+
+        assertArrayEquals(golden("expected-CU_FIZIC.csv"), Files.readAllBytes(out));
+    }
+
+    @Test
+    void writesUtf8WhateverThePlatformCharset(@TempDir Path dir) throws IOException {
+        ImportDeclaration dto = declarations("declarations.json").get(0);
+        dto.setNrContainer("Numărul");
+        Path out = dir.resolve("output.csv");
+        BillingCsvWriter.write(out, List.of(dto), BillingMode.FARA_FIZIC);
+
+        assertTrue(Files.readString(out, StandardCharsets.UTF_8).contains("OTP - 26ROBU1030000100 - Numărul"));
+    }
+
+    @Test
+    void openedWriterReplacesTheOutputOnlyOnCommit(@TempDir Path dir) throws IOException {
+        Path out = dir.resolve("output.csv");
+        Path part = dir.resolve("output.csv.part");
+        Files.writeString(out, "previous");
+        List<ImportDeclaration> list = declarations("declarations.json");
+
+        // a run that fails halfway leaves the previous file
+        try (BillingCsvWriter w = BillingCsvWriter.open(out, BillingMode.CU_FIZIC)) {
+            w.accept(list.get(0));
+        }
+        assertEquals("previous", Files.readString(out));
+        assertFalse(Files.exists(part));
+
+        try (BillingCsvWriter w = BillingCsvWriter.open(out, BillingMode.CU_FIZIC)) {
+            for (ImportDeclaration dto : list) {
+                w.accept(dto);
+            }
+            w.commit();
+        }
+        assertArrayEquals(golden("expected-CU_FIZIC.csv"), Files.readAllBytes(out));
+        assertFalse(Files.exists(part));
+    }
+
+    private static List<ImportDeclaration> declarations(String name) throws IOException {
+        try (InputStream in = resource(name)) {
+            return Arrays.asList(MAPPER.readValue(in, ImportDeclaration[].class));
+        }
+    }
+
+    private static byte[] golden(String name) throws IOException {
+        try (InputStream in = resource(name)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static InputStream resource(String name) {
+        return Objects.requireNonNull(BillingCsvWriterTest.class.getResourceAsStream("/billing/" + name), name);
+    }
+}
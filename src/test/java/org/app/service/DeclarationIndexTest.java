@@ -0,0 +1,153 @@
+package org.app.service;
+
+import org.app.model.ImportDeclaration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The declaration index: which earlier declarations a new one duplicates,
+ * within a run and across runs through the file, and what a lookup finds
+ * once a PDF was parsed again with other fields.
+ */
+class DeclarationIndexTest {
+
+    @Test
+    void sameMrnFromAnotherPdfIsADuplicate(@TempDir Path dir) throws Exception {
+        DeclarationIndex index = new DeclarationIndex(dir.resolve("declarations.ndjson"));
+        assertTrue(index.add(declaration("24RO1", "C1", "R1"), dir.resolve("a.pdf"), "run1").isEmpty());
+        // the same PDF parsed again is no duplicate of itself
+        assertTrue(index.add(declaration("24RO1", "C1", "R1"), dir.resolve("a.pdf"), "run2").isEmpty());
+
+        List<DeclarationIndex.Duplicate> dup = index.add(declaration("24ro1", "C2", "R2"), dir.resolve("b.pdf"), "run2");
+        assertEquals(1, dup.size());
+        assertEquals("a.pdf", dup.get(0).earlier().file());
+        assertTrue(dup.get(0).describe().startsWith("MRN 24ro1 already in "), dup.get(0).describe());
+    }
+
+    @Test
+    void containerCountsOnlyOnTheSameReference(@TempDir Path dir) throws Exception {
+        DeclarationIndex index = new DeclarationIndex(dir.resolve("declarations.ndjson"));
+        index.add(declaration("24RO1", "MSCU1234567", "N821 / R1"), dir.resolve("a.pdf"), "run1");
+
+        // containers are reused: on another transport it is a different shipment
+        assertTrue(index.add(declaration("24RO2", "MSCU1234567", "N821 / R2"), dir.resolve("b.pdf"), "run1").isEmpty());
+
+        List<DeclarationIndex.Duplicate> dup = index.add(declaration("24RO3", "mscu1234567", "N821 / R1"), dir.resolve("c.pdf"), "run1");
+        assertEquals(1, dup.size());
+        assertTrue(dup.get(0).describe().startsWith("container and reference "), dup.get(0).describe());
+    }
+
+    @Test
+    void flagsDuplicatesOfEarlierRuns(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("index").resolve("declarations.ndjson");
+        DeclarationIndex first = new DeclarationIndex(file);
+        first.add(declaration("24RO1", "C1", "R1"), dir.resolve("may").resolve("a.pdf"), "run1");
+        first.flush();
+
+        DeclarationIndex later = new DeclarationIndex(file);
+        assertEquals(1, later.size());
+        List<DeclarationIndex.Duplicate> dup = later.add(declaration("24RO1", "C1", "R1"),
+                dir.resolve("june").resolve("a.pdf"), "run2");
+        assertEquals(1, dup.size());
+        assertEquals("run1", dup.get(0).earlier().run());
+        assertEquals(dir.resolve("may").toAbsolutePath().normalize().toString(), dup.get(0).earlier().folder());
+    }
+
+    @Test
+    void reparsedPdfReplacesItsEntry(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("declarations.ndjson");
+        Path pdf = dir.resolve("a.pdf");
+        DeclarationIndex index = new DeclarationIndex(file);
+        index.add(declaration("24RO1", "C1", "R1"), pdf, "run1");
+        index.flush();
+        index.add(declaration("24RO9", "C1", "R1"), pdf, "run2");
+        index.flush();
+        // unchanged fields append nothing
+        index.add(declaration("24RO9", "C1", "R1"), pdf, "run3");
+        index.flush();
+        assertEquals(2, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+
+        DeclarationIndex reloaded = new DeclarationIndex(file);
+        assertEquals(1, reloaded.size());
+        assertTrue(reloaded.lookup("24RO1").isEmpty());
+        assertEquals("run2", reloaded.lookup("24ro9").get(0).run());
+        // the old MRN no longer flags anything
+        assertTrue(reloaded.add(declaration("24RO1", "C7", "R7"), dir.resolve("b.pdf"), "run4").isEmpty());
+    }
+
+    @Test
+    void lookupFindsContainersAndReferences(@TempDir Path dir) throws Exception {
+        DeclarationIndex index = new DeclarationIndex(dir.resolve("declarations.ndjson"));
+        index.add(declaration("24RO1", "C1", "R1"), dir.resolve("a.pdf"), "run1");
+        index.add(declaration("24RO2", "C2", "R1"), dir.resolve("b.pdf"), "run1");
+
+        assertEquals(List.of("a.pdf"), files(index.lookup("c1")));
+        assertEquals(2, index.lookup("R1").size());
+        assertTrue(index.lookup("  ").isEmpty());
+    }
+
+    @Test
+    void damagedLineCostsOnlyItsEntry(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("declarations.ndjson");
+        DeclarationIndex index = new DeclarationIndex(file);
+        index.add(declaration("24RO1", "C1", "R1"), dir.resolve("a.pdf"), "run1");
+        index.add(declaration("24RO2", "C2", "R2"), dir.resolve("b.pdf"), "run1");
+        index.flush();
+        Files.writeString(file, "{\"run\":\"run2\",\"fi", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        DeclarationIndex reloaded = new DeclarationIndex(file);
+        assertEquals(2, reloaded.size());
+        assertEquals(1, reloaded.lookup("24RO2").size());
+    }
+
+    @Test
+    void folderRunsLogDuplicatesOfEarlierRuns(@TempDir Path dir) throws Exception {
+        Path indexFile = dir.resolve("declarations.ndjson");
+        FakeExtractor.pdf(dir.resolve("may"), "a.pdf", "mrn=24RO1", "nrContainer=C1");
+        // another scan of the same declaration, in the next month's folder
+        FakeExtractor.pdf(dir.resolve("june"), "scan.pdf", "mrn=24RO1", "nrContainer=C1", "nrArticole=1");
+        FakeExtractor extractor = new FakeExtractor(1);
+
+        run(dir.resolve("may"), extractor, indexFile, dir, new ArrayList<>());
+        List<String> log = new ArrayList<>();
+        run(dir.resolve("june"), extractor, indexFile, dir, log);
+
+        assertTrue(log.stream().anyMatch(l -> l.startsWith("⚠ Possible duplicate: scan.pdf → MRN 24RO1 already in ")
+                && l.contains("a.pdf")), () -> String.join("\n", log));
+        assertTrue(log.contains("⚠ 1 possible duplicate(s) of earlier declarations, see above"), () -> String.join("\n", log));
+    }
+
+    private static void run(Path folder, PdfExtractor extractor, Path indexFile, Path dir, List<String> log)
+            throws Exception {
+        PdfFolderService svc = new PdfFolderService(log::add, extractor,
+                new ResultCache(dir.resolve("results.ndjson"), 100), null, new DeclarationIndex(indexFile));
+        svc.processFolder(folder.toFile());
+    }
+
+    private static ImportDeclaration declaration(String mrn, String container, String reference) {
+        ImportDeclaration d = new ImportDeclaration();
+        d.setMrn(mrn);
+        d.setNrContainer(container);
+        d.setReferintaDocument(reference);
+        d.setNrArticole("1");
+        return d;
+    }
+
+    private static List<String> files(List<DeclarationIndex.Entry> entries) {
+        List<String> files = new ArrayList<>();
+        for (DeclarationIndex.Entry e : entries) {
+            files.add(e.file());
+        }
+        return files;
+    }
+}
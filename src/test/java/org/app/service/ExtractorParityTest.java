@@ -0,0 +1,122 @@
+package org.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The two engines on the checked-in PDFs in fixtures/: the in-JVM engine
+ * must find the fields listed in fixtures/expected.json, and pdfplumber
+ * (extract.py as a daemon) must find the same fields on the same pages.
+ * The pdfplumber half needs an interpreter with pdfplumber, see {@link Python}.
+ */
+class ExtractorParityTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static JavaPdfExtractor java;
+    private static NativePdfExtractor pdfplumber;
+
+    @BeforeAll
+    static void startEngines() {
+        java = new JavaPdfExtractor(1, 0);
+    }
+
+    @AfterAll
+    static void stopEngines() {
+        java.close();
+        if (pdfplumber != null) {
+            pdfplumber.close();
+            System.clearProperty("idr.extractor.path");
+            System.clearProperty("idr.extractor.python");
+        }
+    }
+
+    static List<String> fixtures() throws IOException {
+        List<String> names = new ArrayList<>();
+        expected().fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    @ParameterizedTest
+    @MethodSource("fixtures")
+    void javaEngineFindsTheExpectedFields(String fixture) throws Exception {
+        JsonNode rec = java.extract(fixture(fixture));
+
+        assertFalse(rec.has("error"), () -> "error record: " + rec);
+        assertEquals(asMap(expected().get(fixture)), fields(rec));
+    }
+
+    @ParameterizedTest
+    @MethodSource("fixtures")
+    void pdfplumberMatchesTheJavaEngine(String fixture) throws Exception {
+        assumeTrue(Python.canImport("pdfplumber"), "no Python with pdfplumber (-Didr.test.python)");
+        Path pdf = fixture(fixture);
+
+        JsonNode expected = java.extract(pdf);
+        JsonNode actual = pdfplumber().extract(pdf);
+
+        assertFalse(actual.has("error"), () -> "error record: " + actual);
+        assertEquals(fields(expected), fields(actual), "fields");
+        assertEquals(expected.path("pages_total").asInt(), actual.path("pages_total").asInt(), "pages_total");
+        // the same text stops both early exits on the same page
+        assertEquals(expected.path("pages_read").asInt(), actual.path("pages_read").asInt(), "pages_read");
+    }
+
+    // extract.py from this checkout, not a packaged binary
+    private static synchronized NativePdfExtractor pdfplumber() {
+        if (pdfplumber == null) {
+            System.setProperty("idr.extractor.path", Python.EXTRACT_SCRIPT.toString());
+            System.setProperty("idr.extractor.python", Python.interpreter());
+            pdfplumber = new NativePdfExtractor(new ExtractorPool(1), 60_000);
+        }
+        return pdfplumber;
+    }
+
+    private static Map<String, String> fields(JsonNode rec) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (String field : FieldRules.FIELDS) {
+            if (rec.hasNonNull(field)) {
+                fields.put(field, rec.get(field).asText());
+            }
+        }
+        return fields;
+    }
+
+    private static Map<String, String> asMap(JsonNode node) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> e = it.next();
+            map.put(e.getKey(), e.getValue().asText());
+        }
+        return map;
+    }
+
+    private static JsonNode expected() throws IOException {
+        try (InputStream in = Objects.requireNonNull(
+                ExtractorParityTest.class.getResourceAsStream("/fixtures/expected.json"))) {
+            return MAPPER.readTree(in);
+        }
+    }
+
+    private static Path fixture(String name) throws URISyntaxException {
+        return Path.of(Objects.requireNonNull(ExtractorParityTest.class.getResource("/fixtures/" + name)).toURI());
+    }
+}
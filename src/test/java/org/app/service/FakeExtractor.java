@@ -0,0 +1,88 @@
+package org.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A backend for the service tests that reads no PDF: a test "PDF" is a text
+ * file of {@code field=value} lines, and its record is those fields. Counts
+ * the files it extracted and, while {@link #hold()} is on, keeps every file
+ * waiting until {@link #release()}.
+ */
+final class FakeExtractor implements PdfExtractor {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final int parallelism;
+    private final AtomicInteger extracted = new AtomicInteger();
+    // one permit per file that entered extract()
+    private final Semaphore entered = new Semaphore(0);
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+
+    FakeExtractor(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /** Writes a test PDF with the given {@code field=value} lines. */
+    static Path pdf(Path folder, String name, String... fields) throws IOException {
+        Files.createDirectories(folder);
+        return Files.write(folder.resolve(name), String.join("\n", fields).getBytes(StandardCharsets.UTF_8));
+    }
+
+    void hold() {
+        gate = new CountDownLatch(1);
+    }
+
+    void release() {
+        gate.countDown();
+    }
+
+    /** Waits until n more files have entered extract(), held or not. */
+    boolean awaitEntered(int n) throws InterruptedException {
+        return entered.tryAcquire(n, 10, TimeUnit.SECONDS);
+    }
+
+    /** Files extracted to the end. */
+    int extracted() {
+        return extracted.get();
+    }
+
+    @Override
+    public String name() {
+        return "fake";
+    }
+
+    @Override
+    public String cacheTag() {
+        return "fake-1";
+    }
+
+    @Override
+    public int parallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public JsonNode extract(Path pdf) throws IOException, InterruptedException {
+        entered.release();
+        gate.await();
+        ObjectNode rec = mapper.createObjectNode();
+        rec.put("file", pdf.getFileName().toString());
+        for (String line : Files.readAllLines(pdf, StandardCharsets.UTF_8)) {
+            int eq = line.indexOf('=');
+            if (eq > 0) {
+                rec.put(line.substring(0, eq), line.substring(eq + 1));
+            }
+        }
+        extracted.incrementAndGet();
+        return rec;
+    }
+}
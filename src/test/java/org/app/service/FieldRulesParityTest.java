@@ -0,0 +1,108 @@
+package org.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.provider.Arguments;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * FieldRules against RULES in extract.py ({@code extract.py --match}) on
+ * the same texts: the regression corpus and generated lines built from
+ * the anchors, separators and the Unicode corners both sides must agree on.
+ * Needs a Python interpreter (no pdfplumber), see {@link Python}.
+ */
+class FieldRulesParityTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String[] ANCHORS = {
+            "Importatorul - [13 04]", "MRN", "mrn", "Mrn", "N821", "N822", "total articole", "TOTAL ARTICOLE",
+            "Numărul de identificare al containerului", "[19 07]"
+    };
+    private static final String[] SEPARATORS = {" ", "", " / ", "/", "]", ": ", ".", " - ", "\u00a0", "\t", "(", ")"};
+    private static final String[] WORDS = {
+            "24ROBU1030000123A4", "RO16228290", "MSKU1234565", "TGHU-8811223", "Nr", "Nr.", "ro123", "12", "0",
+            "٣٤", "ß", "İ", "ı", "ſ", "\u212a", "ﬁ", "Ǆ", "ă", "µ", "x_y", "-", "MRNX", "XMRN", "articole", "containerului"
+    };
+    private static final String[] BREAKS = {"\n", "\r\n", "\r", "\f", "\u000b", "\u0085", "\u2028", "\n\n"};
+
+    @BeforeAll
+    static void needsPython() {
+        assumeTrue(Python.canImport("json", "re"), "no Python interpreter (-Didr.test.python)");
+    }
+
+    @Test
+    void corpusMatchesExtractPy() throws Exception {
+        List<String> texts = new ArrayList<>();
+        for (Arguments a : FieldRulesTest.corpus()) {
+            texts.add((String) a.get()[1]);
+        }
+        assertSameOutcomes(texts);
+    }
+
+    @Test
+    void generatedTextsMatchExtractPy() throws Exception {
+        Random random = new Random(8);
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            texts.add(generate(random));
+        }
+        assertSameOutcomes(texts);
+    }
+
+    private static void assertSameOutcomes(List<String> texts) throws IOException, InterruptedException {
+        JsonNode python = match(texts);
+        assertEquals(texts.size(), python.size());
+        for (int i = 0; i < texts.size(); i++) {
+            Map<String, String> expected = FieldRulesTest.asMap(python.get(i));
+            String text = texts.get(i);
+            assertEquals(expected, FieldRulesTest.outcome(text), () -> "text: " + MAPPER.valueToTree(text));
+        }
+    }
+
+    // a few lines of anchors, separators and words in random order
+    private static String generate(Random random) {
+        StringBuilder text = new StringBuilder();
+        int lines = 1 + random.nextInt(6);
+        for (int l = 0; l < lines; l++) {
+            int parts = 1 + random.nextInt(5);
+            for (int p = 0; p < parts; p++) {
+                String[] pool = random.nextInt(3) == 0 ? ANCHORS : WORDS;
+                text.append(pick(random, pool)).append(pick(random, SEPARATORS));
+            }
+            text.append(pick(random, BREAKS));
+        }
+        return text.toString();
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    // one extract.py --match run for all texts
+    private static JsonNode match(List<String> texts) throws IOException, InterruptedException {
+        Process p = new ProcessBuilder(Python.interpreter(), Python.EXTRACT_SCRIPT.toString(), "--match")
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try (OutputStream in = p.getOutputStream()) {
+            in.write(MAPPER.writeValueAsString(texts).getBytes(StandardCharsets.UTF_8));
+        }
+        JsonNode out = MAPPER.readTree(p.getInputStream());
+        assertTrue(p.waitFor(60, TimeUnit.SECONDS), "extract.py --match did not finish");
+        assertEquals(0, p.exitValue(), "extract.py --match failed");
+        return out;
+    }
+}
@@ -0,0 +1,139 @@
+package org.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The rule table on the regression corpus in rules/corpus.json: each case
+ * is a document's text and the fields (or the error) extract.py gives for
+ * it. {@link FieldRulesParityTest} runs the same corpus through extract.py.
+ */
+class FieldRulesTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static List<Arguments> corpus() throws IOException {
+        JsonNode cases;
+        try (InputStream in = Objects.requireNonNull(
+                FieldRulesTest.class.getResourceAsStream("/rules/corpus.json"))) {
+            cases = MAPPER.readTree(in);
+        }
+        List<Arguments> args = new ArrayList<>();
+        for (JsonNode c : cases) {
+            Map<String, String> expected = c.has("error")
+                    ? Map.of("error", c.get("error").asText())
+                    : asMap(c.get("fields"));
+            args.add(Arguments.of(c.get("name").asText(), c.get("text").asText(), expected));
+        }
+        return args;
+    }
+
+    /** The fields of a text, or {"error": message} where extract.py raises. */
+    static Map<String, String> outcome(String text) {
+        try {
+            return FieldRules.extract(text);
+        } catch (IllegalStateException e) {
+            return Map.of("error", e.getMessage());
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("corpus")
+    void matchesTheCorpus(String name, String text, Map<String, String> expected) {
+        Map<String, String> actual = outcome(text);
+
+        assertEquals(expected, actual);
+        // rule order, like extract.py's records
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("corpus")
+    void pageByPageGivesTheSameFields(String name, String text, Map<String, String> expected) {
+        if (expected.containsKey("error")) {
+            return;
+        }
+        FieldMatcher matcher = FieldRules.newMatcher();
+        for (String page : text.split("\f", -1)) {
+            matcher.feed(page);
+        }
+        assertEquals(expected, matcher.fields());
+    }
+
+    @Test
+    void isDoneOnceEveryRuleHasSeenItsAnchor() {
+        FieldMatcher matcher = FieldRules.newMatcher()
+                .feed("Importatorul - [13 04] Nr RO1\nMRN 24RO1\nN821 / R1\ntotal articole 1");
+        assertFalse(matcher.isDone());
+
+        matcher.feed("Numărul de identificare al containerului [19 07] C1\nMRN 24RO2");
+        assertTrue(matcher.isDone());
+        // later anchor lines are ignored
+        assertEquals("24RO1", matcher.fields().get("mrn"));
+    }
+
+    @Test
+    void anchorLineWithoutValueStillDecides() {
+        FieldMatcher matcher = FieldRules.newMatcher().feed("MRN -");
+
+        assertFalse(matcher.fields().containsKey("mrn"));
+        assertEquals(Map.of(), matcher.feed("MRN 24RO1").fields());
+    }
+
+    @Test
+    void emptySeparatorTailRaisesLikePython() {
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> FieldRules.extract("N821 /  "));
+        assertEquals("list index out of range", e.getMessage());
+    }
+
+    @Test
+    void fieldsListsEveryRuleInOrder() {
+        assertEquals(List.of("nrDestinatar", "mrn", "referintaDocument", "nrArticole", "nrContainer"),
+                FieldRules.FIELDS);
+    }
+
+    @Test
+    void versionMatchesExtractPy() throws IOException {
+        String script = Files.readString(Python.EXTRACT_SCRIPT, StandardCharsets.UTF_8);
+        Matcher m = Pattern.compile("(?m)^RULES_VERSION = (\\d+)$").matcher(script);
+
+        assertTrue(m.find(), "RULES_VERSION not found in extract.py");
+        assertEquals(FieldRules.VERSION, Integer.parseInt(m.group(1)));
+    }
+
+    @Test
+    void pythonStringHelpers() {
+        assertEquals("a b", FieldRules.pyStrip("\u00a0\u0085 a b\t\u3000"));
+        assertEquals("ABC", FieldRules.firstToken("  ABC\u00a0DEF"));
+    }
+
+    static Map<String, String> asMap(JsonNode node) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> e = it.next();
+            map.put(e.getKey(), e.getValue().asText());
+        }
+        return map;
+    }
+}
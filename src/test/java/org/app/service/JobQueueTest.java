@@ -0,0 +1,144 @@
+package org.app.service;
+
+import org.app.model.BillingMode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The folder queue: no more than maxRunning (-Didr.jobs) folders at once,
+ * the next one started as a slot frees, and cancel meaning "never start"
+ * for a queued job but "stop extracting" for a running one. The backend
+ * holds every file until the test lets it go.
+ */
+class JobQueueTest {
+    private final List<String> log = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void runsAtMostMaxRunningAtOnce(@TempDir Path dir) throws Exception {
+        FakeExtractor extractor = new FakeExtractor(1);
+        JobQueue queue = queue(2, extractor, dir);
+        AtomicInteger maxRunning = new AtomicInteger();
+        queue.setChangeListener(() -> maxRunning.accumulateAndGet(queue.running(), Math::max));
+        extractor.hold();
+
+        List<FolderJob> jobs = new ArrayList<>();
+        for (String name : List.of("jan", "feb", "mar")) {
+            jobs.add(queue.add(folder(dir, name, 1), BillingMode.CU_FIZIC));
+        }
+        assertTrue(extractor.awaitEntered(2));
+        assertEquals(2, queue.running());
+        assertEquals(1, queue.queued());
+        assertEquals(FolderJob.Status.QUEUED, jobs.get(2).status());
+
+        extractor.release();
+        awaitFinished(queue);
+        assertEquals(2, maxRunning.get());
+        for (FolderJob job : jobs) {
+            assertEquals(FolderJob.Status.DONE, job.status(), job::describe);
+            assertTrue(Files.isRegularFile(job.folder().resolve("output.csv")));
+        }
+        assertEquals(3, extractor.extracted());
+    }
+
+    @Test
+    void cancelledQueuedJobNeverStarts(@TempDir Path dir) throws Exception {
+        FakeExtractor extractor = new FakeExtractor(1);
+        JobQueue queue = queue(1, extractor, dir);
+        extractor.hold();
+        FolderJob first = queue.add(folder(dir, "jan", 1), BillingMode.CU_FIZIC);
+        FolderJob second = queue.add(folder(dir, "feb", 2), BillingMode.CU_FIZIC);
+        assertTrue(extractor.awaitEntered(1));
+
+        queue.cancel(second);
+        assertEquals(FolderJob.Status.CANCELLED, second.status());
+        assertEquals("cancelled before it started", second.detail());
+
+        extractor.release();
+        awaitFinished(queue);
+        assertEquals(FolderJob.Status.DONE, first.status(), first::describe);
+        assertEquals(1, extractor.extracted());
+        assertFalse(Files.exists(second.folder().resolve("output.csv")));
+    }
+
+    @Test
+    void cancelledRunningJobStopsAndFreesItsSlot(@TempDir Path dir) throws Exception {
+        FakeExtractor extractor = new FakeExtractor(1);
+        JobQueue queue = queue(1, extractor, dir);
+        extractor.hold();
+        FolderJob first = queue.add(folder(dir, "jan", 3), BillingMode.CU_FIZIC);
+        FolderJob second = queue.add(folder(dir, "feb", 1), BillingMode.CU_FIZIC);
+        assertTrue(extractor.awaitEntered(1));
+        assertEquals(FolderJob.Status.RUNNING, first.status());
+
+        // the held file is abandoned, the rest of the folder never starts
+        queue.cancel(first);
+        assertTrue(extractor.awaitEntered(1));
+        assertEquals(FolderJob.Status.CANCELLED, first.status(), first::describe);
+        assertEquals("0 parsed, output.csv written", first.detail());
+        assertEquals(FolderJob.Status.RUNNING, second.status());
+
+        extractor.release();
+        awaitFinished(queue);
+        assertEquals(FolderJob.Status.DONE, second.status(), second::describe);
+        assertEquals(1, extractor.extracted());
+        assertTrue(log.stream().anyMatch(l -> l.startsWith("[jan] ⚠ Cancelled: 0 of 3 PDFs processed")),
+                () -> String.join("\n", log));
+    }
+
+    @Test
+    void folderIsQueuedOnceUntilItFinishes(@TempDir Path dir) throws Exception {
+        FakeExtractor extractor = new FakeExtractor(1);
+        JobQueue queue = queue(1, extractor, dir);
+        extractor.hold();
+        Path jan = folder(dir, "jan", 1);
+        assertNotNull(queue.add(jan, BillingMode.CU_FIZIC));
+        assertNull(queue.add(jan.resolve("..").resolve("jan"), BillingMode.FARA_FIZIC));
+
+        extractor.release();
+        awaitFinished(queue);
+        assertNotNull(queue.add(jan, BillingMode.CU_FIZIC));
+        awaitFinished(queue);
+    }
+
+    @Test
+    void rejectsACapBelowOne() {
+        assertThrows(IllegalArgumentException.class, () -> new JobQueue(0, log::add));
+    }
+
+    private JobQueue queue(int maxRunning, PdfExtractor extractor, Path dir) {
+        ResultCache cache = new ResultCache(dir.resolve("results.ndjson"), 100);
+        return new JobQueue(maxRunning, log::add, logger -> new PdfFolderService(logger, extractor, cache));
+    }
+
+    // a folder of n test PDFs with distinct MRNs
+    private static Path folder(Path dir, String name, int n) throws Exception {
+        Path folder = dir.resolve(name);
+        for (int i = 1; i <= n; i++) {
+            FakeExtractor.pdf(folder, i + ".pdf", "mrn=" + name + i, "nrArticole=1");
+        }
+        return folder;
+    }
+
+    private static void awaitFinished(JobQueue queue) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (queue.jobs().stream().anyMatch(j -> !j.status().isFinished())) {
+            assertTrue(System.nanoTime() < deadline, () -> "jobs still running: " + queue.jobs());
+            Thread.sleep(10);
+        }
+    }
+}
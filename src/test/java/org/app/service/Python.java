@@ -0,0 +1,47 @@
+package org.app.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Python side of the parity tests: -Didr.test.python, else python3
+ * (python on Windows), running the repo's python/extract.py. Tests that
+ * need it skip themselves when the interpreter or a module is missing.
+ */
+final class Python {
+    static final Path EXTRACT_SCRIPT = Path.of("python", "extract.py").toAbsolutePath();
+
+    private Python() {
+    }
+
+    static String interpreter() {
+        String configured = System.getProperty("idr.test.python", "").trim();
+        if (!configured.isEmpty()) {
+            return configured;
+        }
+        return System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("win") ? "python" : "python3";
+    }
+
+    /** Whether the interpreter runs and can import every module given. */
+    static boolean canImport(String... modules) {
+        if (!Files.isRegularFile(EXTRACT_SCRIPT)) {
+            return false;
+        }
+        try {
+            Process p = new ProcessBuilder(interpreter(), "-c", "import " + String.join(", ", modules))
+                    .redirectErrorStream(true)
+                    .start();
+            p.getInputStream().transferTo(OutputStream.nullOutputStream());
+            return p.waitFor(30, TimeUnit.SECONDS) && p.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
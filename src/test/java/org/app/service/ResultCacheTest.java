@@ -0,0 +1,161 @@
+package org.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.app.model.ImportDeclaration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The result cache: least-recently-used eviction at its size cap, and the
+ * same order after a save and reload, so the entries a later run drops are
+ * still the ones used longest ago.
+ */
+class ResultCacheTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void hitIsACopyForTheFileAsked(@TempDir Path dir) throws Exception {
+        ResultCache cache = new ResultCache(dir.resolve("results.ndjson"), 10);
+        assertNull(cache.get("a:tag", "x.pdf"));
+
+        cache.put("a:tag", record("24RO1").put("file", "first.pdf").put("ms", 120));
+        ObjectNode hit = cache.get("a:tag", "renamed.pdf");
+        assertEquals("renamed.pdf", hit.path("file").asText());
+        assertEquals("24RO1", hit.path("mrn").asText());
+        // a hit took no extraction time
+        assertFalse(hit.has("ms"));
+
+        hit.put("mrn", "changed");
+        assertEquals("24RO1", cache.get("a:tag", "x.pdf").path("mrn").asText());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsed(@TempDir Path dir) throws Exception {
+        ResultCache cache = new ResultCache(dir.resolve("results.ndjson"), 3);
+        cache.put("a", record("A"));
+        cache.put("b", record("B"));
+        cache.put("c", record("C"));
+        // a hit makes "a" recent: "b" is now the oldest
+        assertNotNull(cache.get("a", "a.pdf"));
+        cache.put("d", record("D"));
+
+        assertEquals(3, cache.size());
+        assertNull(cache.get("b", "b.pdf"));
+        assertNotNull(cache.get("a", "a.pdf"));
+        assertNotNull(cache.get("c", "c.pdf"));
+        assertNotNull(cache.get("d", "d.pdf"));
+    }
+
+    @Test
+    void reloadKeepsTheUseOrder(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("results.ndjson");
+        ResultCache cache = new ResultCache(file, 3);
+        cache.put("a", record("A"));
+        cache.put("b", record("B"));
+        cache.put("c", record("C"));
+        cache.get("a", "a.pdf");
+        cache.save();
+
+        ResultCache reloaded = new ResultCache(file, 3);
+        assertEquals(3, reloaded.size());
+        assertEquals("A", reloaded.get("a", "a.pdf").path("mrn").asText());
+        reloaded.put("d", record("D"));
+        // "b" was the oldest before the save and still is
+        assertNull(reloaded.get("b", "b.pdf"));
+        assertNotNull(reloaded.get("c", "c.pdf"));
+    }
+
+    @Test
+    void reloadUnderASmallerCapKeepsTheMostRecent(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("results.ndjson");
+        ResultCache cache = new ResultCache(file, 10);
+        for (String k : List.of("a", "b", "c", "d")) {
+            cache.put(k, record(k.toUpperCase()));
+        }
+        cache.get("a", "a.pdf");
+        cache.save();
+
+        ResultCache smaller = new ResultCache(file, 2);
+        assertEquals(2, smaller.size());
+        assertNotNull(smaller.get("a", "a.pdf"));
+        assertNotNull(smaller.get("d", "d.pdf"));
+    }
+
+    @Test
+    void damagedLineCostsOnlyItsEntry(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("results.ndjson");
+        ResultCache cache = new ResultCache(file, 10);
+        cache.put("a", record("A"));
+        cache.put("b", record("B"));
+        cache.save();
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Files.write(file, List.of(lines.get(0), "{\"key\":\"c\",\"rec", lines.get(1)), StandardCharsets.UTF_8);
+
+        ResultCache reloaded = new ResultCache(file, 10);
+        assertEquals(2, reloaded.size());
+        // the next save writes the file without the damaged line
+        reloaded.save();
+        assertEquals(2, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    void unchangedCacheIsNotWritten(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("results.ndjson");
+        ResultCache cache = new ResultCache(file, 10);
+        cache.save();
+        assertFalse(Files.exists(file));
+
+        cache.put("a", record("A"));
+        cache.save();
+        Files.writeString(file, Files.readString(file) + "\n");
+        // hits alone don't rewrite it
+        cache.get("a", "a.pdf");
+        cache.save();
+        assertTrue(Files.readString(file).endsWith("\n\n"));
+    }
+
+    @Test
+    void rejectsACapBelowOne(@TempDir Path dir) {
+        assertThrows(IllegalArgumentException.class, () -> new ResultCache(dir.resolve("results.ndjson"), 0));
+    }
+
+    @Test
+    void secondRunIsAnsweredFromTheCache(@TempDir Path dir) throws Exception {
+        Path folder = dir.resolve("in");
+        FakeExtractor.pdf(folder, "a.pdf", "mrn=24RO1");
+        FakeExtractor.pdf(folder, "b.pdf", "mrn=24RO2");
+        Path cacheFile = dir.resolve("results.ndjson");
+        FakeExtractor extractor = new FakeExtractor(2);
+
+        List<ImportDeclaration> first = new PdfFolderService(line -> { }, extractor,
+                new ResultCache(cacheFile, 10)).processFolder(folder.toFile());
+        assertEquals(2, first.size());
+        assertEquals(2, extractor.extracted());
+
+        // a later session, with a renamed copy of a.pdf: same bytes, same record
+        Files.copy(folder.resolve("a.pdf"), folder.resolve("c.pdf"));
+        List<ImportDeclaration> second = new PdfFolderService(line -> { }, extractor,
+                new ResultCache(cacheFile, 10)).processFolder(folder.toFile());
+        assertEquals(3, second.size());
+        assertEquals(2, extractor.extracted());
+        assertEquals("c.pdf", second.get(2).getFile());
+        assertEquals("24RO1", second.get(2).getMrn());
+    }
+
+    private static ObjectNode record(String mrn) {
+        return MAPPER.createObjectNode().put("mrn", mrn);
+    }
+}
@@ -0,0 +1,143 @@
+package org.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The text-layer store and re-matching. What re-matches after a rule
+ * change: from a partial layer (the default) only what the current rules
+ * can decide within the stored pages, the rest goes back to extraction;
+ * from a complete one (-Didr.textlayers.full=true) everything.
+ */
+class TextLayerStoreTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String SHA = "ab" + "0".repeat(62);
+
+    private static final String FIRST_PAGE = "Importatorul - [13 04] Nr RO1\nMRN 24RO1\nN821 / R1\ntotal articole 2";
+    private static final String LAST_PAGE = "Numărul de identificare al containerului [19 07] C1\nMRN 24RO2";
+
+    @Test
+    void storesAndReadsBackALayer(@TempDir Path dir) throws Exception {
+        TextLayerStore store = new TextLayerStore(dir);
+        TextLayerStore.TextLayer layer = new TextLayerStore.TextLayer(List.of(FIRST_PAGE, "", LAST_PAGE), 3, true);
+        store.put(SHA, "pdfbox", layer);
+
+        TextLayerStore.TextLayer read = store.get(SHA, "pdfbox");
+        assertNotNull(read);
+        assertEquals(layer.pages(), read.pages());
+        assertEquals(3, read.pagesTotal());
+        assertTrue(read.complete());
+        // per engine: the other engine's text may differ
+        assertNull(store.get(SHA, "pdfplumber"));
+    }
+
+    @Test
+    void damagedLayerReadsAsMissing(@TempDir Path dir) throws Exception {
+        TextLayerStore store = new TextLayerStore(dir);
+        store.put(SHA, "pdfbox", new TextLayerStore.TextLayer(List.of(FIRST_PAGE), 1, true));
+        try (var files = Files.walk(dir)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                Files.writeString(file, "not gzip");
+            }
+        }
+        assertNull(store.get(SHA, "pdfbox"));
+    }
+
+    @Test
+    void completeLayerAlwaysRematches() {
+        // rules not done on any page: a complete layer still answers, with what it has
+        TextLayerStore.TextLayer layer = new TextLayerStore.TextLayer(List.of("page one", FIRST_PAGE), 2, true);
+        ObjectNode rec = TextLayerStore.rematch(layer, MAPPER);
+
+        assertNotNull(rec);
+        assertEquals("24RO1", rec.path("mrn").asText());
+        assertFalse(rec.has("nrContainer"));
+        assertEquals(2, rec.path("pages_read").asInt());
+        assertEquals(2, rec.path("pages_total").asInt());
+    }
+
+    @Test
+    void partialLayerRematchesOnlyWhatItsPagesDecide() {
+        TextLayerStore.TextLayer head = new TextLayerStore.TextLayer(List.of(FIRST_PAGE), 3, false);
+        // the container anchor would be on a page the layer doesn't have
+        assertNull(TextLayerStore.rematch(head, MAPPER));
+
+        TextLayerStore.TextLayer enough = new TextLayerStore.TextLayer(List.of(FIRST_PAGE, LAST_PAGE), 3, false);
+        ObjectNode rec = TextLayerStore.rematch(enough, MAPPER);
+        assertNotNull(rec);
+        assertEquals("C1", rec.path("nrContainer").asText());
+        assertEquals("24RO1", rec.path("mrn").asText());
+        assertEquals(2, rec.path("pages_read").asInt());
+    }
+
+    @Test
+    void ruleFailureIsAnErrorRecord() {
+        TextLayerStore.TextLayer layer = new TextLayerStore.TextLayer(List.of("N821 /"), 1, true);
+        ObjectNode rec = TextLayerStore.rematch(layer, MAPPER);
+
+        assertNotNull(rec);
+        assertEquals("list index out of range", rec.path("error").asText());
+    }
+
+    @Test
+    void extractorStoresThePagesItRead() throws Exception {
+        JsonNode rec;
+        try (JavaPdfExtractor extractor = new JavaPdfExtractor(1, 0, false)) {
+            rec = extractor.extract(fixture("early-exit.pdf"));
+        }
+        // the rules are done on the first page: the early exit stands, the layer is that page
+        assertEquals(1, rec.path("pages_read").asInt(), () -> "record: " + rec);
+        assertEquals(1, rec.path("text").size());
+
+        TextLayerStore.TextLayer layer = TextLayerStore.TextLayer.of(rec);
+        assertNotNull(layer);
+        assertFalse(layer.complete());
+        assertSameFields(rec, TextLayerStore.rematch(layer, MAPPER));
+    }
+
+    @Test
+    void fullLayerReadsEveryPageAndSaysSo() throws Exception {
+        JsonNode rec;
+        try (JavaPdfExtractor extractor = new JavaPdfExtractor(1, 0, true)) {
+            rec = extractor.extract(fixture("early-exit.pdf"));
+        }
+        int pagesTotal = rec.path("pages_total").asInt();
+        assertTrue(pagesTotal > 1);
+        // every page was laid out, and pages_read doesn't hide it
+        assertEquals(pagesTotal, rec.path("pages_read").asInt(), () -> "record: " + rec);
+        assertEquals(pagesTotal, rec.path("text").size());
+
+        TextLayerStore.TextLayer layer = TextLayerStore.TextLayer.of(rec);
+        assertNotNull(layer);
+        assertTrue(layer.complete());
+        ObjectNode rematched = TextLayerStore.rematch(layer, MAPPER);
+        assertSameFields(rec, rematched);
+        // re-matching stops where the rules are done
+        assertEquals(1, rematched.path("pages_read").asInt());
+    }
+
+    private static void assertSameFields(JsonNode expected, ObjectNode rematched) {
+        assertNotNull(rematched);
+        for (String field : FieldRules.FIELDS) {
+            assertEquals(expected.path(field).asText(null), rematched.path(field).asText(null), field);
+        }
+    }
+
+    private static Path fixture(String name) throws Exception {
+        return Path.of(Objects.requireNonNull(TextLayerStoreTest.class.getResource("/fixtures/" + name)).toURI());
+    }
+}